@@ -0,0 +1,44 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small, thread-safe, least recently used cache of values derived from archives on disk.
+ */
+final class ArchiveCache<V> {
+    private final Map<ArchiveKey, V> values;
+
+    ArchiveCache(final int maximumSize) {
+        values = new LinkedHashMap<ArchiveKey, V>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<ArchiveKey, V> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    synchronized V get(ArchiveKey key) {
+        return values.get(key);
+    }
+
+    synchronized void put(ArchiveKey key, V value) {
+        values.put(key, value);
+    }
+
+    synchronized void remove(ArchiveKey key) {
+        values.remove(key);
+    }
+}
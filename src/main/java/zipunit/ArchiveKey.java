@@ -0,0 +1,64 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Identifies a version of a file on disk by its canonical path, length and last modified time, with an
+ * optional qualifier for values that also depend on how the file is read.
+ */
+final class ArchiveKey {
+    private final String path;
+    private final long length;
+    private final long lastModified;
+    private final Object qualifier;
+
+    private ArchiveKey(String path, long length, long lastModified, Object qualifier) {
+        this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.qualifier = qualifier;
+    }
+
+    static ArchiveKey of(File file) throws IOException {
+        return of(file, null);
+    }
+
+    static ArchiveKey of(File file, Object qualifier) throws IOException {
+        return new ArchiveKey(file.getCanonicalPath(), file.length(), file.lastModified(), qualifier);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ArchiveKey)) {
+            return false;
+        }
+        ArchiveKey key = (ArchiveKey) other;
+        return path.equals(key.path) && length == key.length && lastModified == key.lastModified
+                && (qualifier == null ? key.qualifier == null : qualifier.equals(key.qualifier));
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = path.hashCode();
+        hash = 31 * hash + (int) (length ^ (length >>> 32));
+        hash = 31 * hash + (int) (lastModified ^ (lastModified >>> 32));
+        return 31 * hash + (qualifier == null ? 0 : qualifier.hashCode());
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks every entry of a zip file against its central directory record: the local header must agree
+ * with the record and the entry data must inflate to the recorded size and CRC. Entries are handed out
+ * to one worker per core, each with its own file handle and {@link Inflater}, and the scan stops at the
+ * first corrupt entry.
+ */
+final class ArchiveScan {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File archive;
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+
+    ArchiveScan(File archive) {
+        this.archive = archive;
+    }
+
+    void assertIntact() throws Exception {
+        CentralDirectory directory;
+        List<CentralDirectory.Record> records;
+        RandomAccessFile file = new RandomAccessFile(archive, "r");
+        try {
+            directory = CentralDirectory.locate(file, new byte[EntryContents.BUFFER_SIZE]);
+            if (directory == null) {
+                assertIntactUsingZipFile();
+                return;
+            }
+            assertTrue("The central directory of [" + archive.getName() + "] extends past the end of the file",
+                    directory.getOffset() + directory.getSize() <= file.length());
+            records = directory.records(file);
+        } catch (IOException e) {
+            throw new AssertionError("The central directory of [" + archive.getName() + "] is corrupt: " + e.getMessage());
+        } finally {
+            close(file);
+        }
+        assertEquals("The number of central directory records of [" + archive.getName() + "] does not match the end of central directory record",
+                directory.getNumberOfEntries(), records.size());
+        scan(directory, records);
+    }
+
+    private void scan(CentralDirectory directory, List<CentralDirectory.Record> records) throws Exception {
+        if (records.isEmpty()) {
+            return;
+        }
+        int workers = Math.min(Runtime.getRuntime().availableProcessors(), records.size());
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+            AtomicInteger nextRecord = new AtomicInteger(0);
+            for (int i = 0; i < workers; i++) {
+                completionService.submit(new Worker(directory, records, nextRecord));
+            }
+            for (int i = 0; i < workers; i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    failed.set(true);
+                    if (e.getCause() instanceof AssertionError) {
+                        throw (AssertionError) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertIntactUsingZipFile() throws IOException {
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(archive);
+        } catch (IOException e) {
+            throw new AssertionError("The central directory of [" + archive.getName() + "] could not be read: " + e.getMessage());
+        }
+        try {
+            byte[] buffer = new byte[EntryContents.BUFFER_SIZE];
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                CRC32 crc = new CRC32();
+                long size = 0;
+                InputStream input = zipFile.getInputStream(entry);
+                try {
+                    int length;
+                    while ((length = input.read(buffer)) != -1) {
+                        crc.update(buffer, 0, length);
+                        size += length;
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError("The entry [" + entry.getName() + "] could not be read: " + e.getMessage());
+                } finally {
+                    input.close();
+                }
+                assertEquals("The entry [" + entry.getName() + "] size does not match the central directory", entry.getSize(), size);
+                assertEquals("The entry [" + entry.getName() + "] CRC does not match the central directory", entry.getCrc(), crc.getValue());
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private static void close(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    private class Worker implements Callable<Void> {
+        private final CentralDirectory directory;
+        private final List<CentralDirectory.Record> records;
+        private final AtomicInteger nextRecord;
+        private final byte[] buffer = new byte[EntryContents.BUFFER_SIZE];
+        private final byte[] output = new byte[EntryContents.BUFFER_SIZE];
+        private final Inflater inflater = new Inflater(true);
+
+        private Worker(CentralDirectory directory, List<CentralDirectory.Record> records, AtomicInteger nextRecord) {
+            this.directory = directory;
+            this.records = records;
+            this.nextRecord = nextRecord;
+        }
+
+        public Void call() throws Exception {
+            RandomAccessFile file = new RandomAccessFile(archive, "r");
+            try {
+                int index;
+                while (!failed.get() && (index = nextRecord.getAndIncrement()) < records.size()) {
+                    CentralDirectory.Record record = records.get(index);
+                    try {
+                        verify(file, record);
+                    } catch (IOException e) {
+                        fail(record, "could not be read: " + e.getMessage());
+                    }
+                }
+                return null;
+            } finally {
+                inflater.end();
+                close(file);
+            }
+        }
+
+        private void verify(RandomAccessFile file, CentralDirectory.Record record) throws IOException {
+            if (record.localHeaderOffset + CentralDirectory.LOCAL_HEADER_LENGTH > directory.getOffset()) {
+                fail(record, "has a local header past the start of the central directory");
+            }
+            file.seek(record.localHeaderOffset);
+            file.readFully(buffer, 0, CentralDirectory.LOCAL_HEADER_LENGTH);
+            if (CentralDirectory.int32(buffer, 0) != CentralDirectory.LOCAL_HEADER_SIGNATURE) {
+                fail(record, "does not have a valid local header signature");
+            }
+            int localFlags = CentralDirectory.uint16(buffer, 6);
+            int localMethod = CentralDirectory.uint16(buffer, 8);
+            long localCrc = CentralDirectory.uint32(buffer, 14);
+            long localCompressedSize = CentralDirectory.uint32(buffer, 18);
+            long localSize = CentralDirectory.uint32(buffer, 22);
+            int nameLength = CentralDirectory.uint16(buffer, 26);
+            int extraLength = CentralDirectory.uint16(buffer, 28);
+
+            byte[] localName = new byte[nameLength];
+            file.readFully(localName);
+            if (!record.name.equals(new String(localName, UTF_8))) {
+                fail(record, "local header name [" + new String(localName, UTF_8) + "] does not match the central directory");
+            }
+            if (localMethod != record.method) {
+                fail(record, "local header compression method [" + localMethod + "] does not match the central directory [" + record.method + "]");
+            }
+            if (CentralDirectory.hasDataDescriptor(localFlags) != record.hasDataDescriptor()) {
+                fail(record, "local header data descriptor flag does not match the central directory");
+            }
+            if (!record.hasDataDescriptor() && (localCrc != record.crc || localCompressedSize != record.compressedSize || localSize != record.size)) {
+                fail(record, "local header CRC and sizes do not match the central directory");
+            }
+
+            long dataOffset = record.localHeaderOffset + CentralDirectory.LOCAL_HEADER_LENGTH + nameLength + extraLength;
+            if (dataOffset + record.compressedSize > directory.getOffset()) {
+                fail(record, "data extends past the start of the central directory, the archive may be truncated");
+            }
+            file.seek(dataOffset);
+            CRC32 crc = new CRC32();
+            long size;
+            if (record.method == ZipEntry.STORED) {
+                size = copyStored(file, record, crc);
+            } else if (record.method == ZipEntry.DEFLATED) {
+                size = inflate(file, record, crc);
+            } else {
+                fail(record, "uses an unsupported compression method [" + record.method + "]");
+                return;
+            }
+            if (size != record.size) {
+                fail(record, "inflated to [" + size + "] bytes but the central directory records [" + record.size + "] bytes");
+            }
+            if (crc.getValue() != record.crc) {
+                fail(record, "CRC [" + Long.toHexString(crc.getValue()) + "] does not match the central directory CRC [" + Long.toHexString(record.crc) + "]");
+            }
+        }
+
+        private long copyStored(RandomAccessFile file, CentralDirectory.Record record, CRC32 crc) throws IOException {
+            long remaining = record.compressedSize;
+            while (remaining > 0) {
+                int length = (int) Math.min(buffer.length, remaining);
+                file.readFully(buffer, 0, length);
+                crc.update(buffer, 0, length);
+                remaining -= length;
+            }
+            return record.compressedSize;
+        }
+
+        private long inflate(RandomAccessFile file, CentralDirectory.Record record, CRC32 crc) throws IOException {
+            inflater.reset();
+            long remaining = record.compressedSize;
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        if (remaining > 0) {
+                            int length = (int) Math.min(buffer.length, remaining);
+                            file.readFully(buffer, 0, length);
+                            remaining -= length;
+                            inflater.setInput(buffer, 0, length);
+                        } else if (remaining == 0) {
+                            // a "nowrap" inflater may need one extra byte to detect the end of the stream
+                            remaining = -1;
+                            inflater.setInput(new byte[1]);
+                        } else {
+                            fail(record, "compressed data ended before the deflate stream was complete");
+                        }
+                    } else if (inflater.needsDictionary()) {
+                        fail(record, "requires a preset dictionary");
+                    }
+                    int length = inflater.inflate(output);
+                    crc.update(output, 0, length);
+                }
+            } catch (DataFormatException e) {
+                fail(record, "has invalid compressed data: " + e.getMessage());
+            }
+            if (remaining > 0 || (remaining == 0 && inflater.getRemaining() > 0)) {
+                fail(record, "compressed size does not match the central directory");
+            }
+            return inflater.getBytesWritten();
+        }
+
+        private void fail(CentralDirectory.Record record, String problem) {
+            throw new AssertionError("The entry [" + record.name + "] at offset [" + record.localHeaderOffset + "] " + problem);
+        }
+    }
+}
@@ -13,29 +13,74 @@
  */
 package zipunit;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Enumeration;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static org.junit.Assert.*;
 
 public class AssertZip {
+    private static final ThreadLocal<Set<LookupMode>> LOOKUP_MODES = new ThreadLocal<Set<LookupMode>>() {
+        protected Set<LookupMode> initialValue() {
+            return EnumSet.noneOf(LookupMode.class);
+        }
+    };
+
+    /**
+     * Changes how the assertions made by the current thread find entries by name, for example to ignore
+     * case or tolerate backslash separators in archives built by Windows tooling. The modes stay in effect
+     * for the thread until {@link #useExactLookup()} is called, so with a test runner that reuses threads
+     * they leak into later tests unless they are reset; prefer the {@link LookupModes} rule, which does so.
+     */
+    public static void useLookupModes(LookupMode... modes) {
+        Set<LookupMode> lookupModes = EnumSet.noneOf(LookupMode.class);
+        lookupModes.addAll(Arrays.asList(modes));
+        LOOKUP_MODES.set(lookupModes);
+    }
+
+    public static void useExactLookup() {
+        LOOKUP_MODES.remove();
+    }
+
+    public static void assertArchiveIntact(File actualZipFile) {
+        try {
+            assertFileExists(actualZipFile);
+            new ArchiveScan(actualZipFile).assertIntact();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static void assertNoDuplicateContent(File actualZipFile) {
+        assertFileExists(actualZipFile);
+        DuplicateContentReport report = DuplicateContentReport.of(actualZipFile);
+        assertTrue("Entries with duplicate content were found: " + report, report.isEmpty());
+    }
+
+    public static void assertDuplicateContentWastesAtMost(long maximumWastedBytes, File actualZipFile) {
+        assertFileExists(actualZipFile);
+        DuplicateContentReport report = DuplicateContentReport.of(actualZipFile);
+        assertTrue("Duplicate content wastes more than " + maximumWastedBytes + " bytes: " + report,
+                report.getWastedBytes() <= maximumWastedBytes);
+    }
+
     public static void assertEntryDoesNotExist(final String expectedEntry, File actualZip) {
         open(actualZip, new WhileZipIsOpen() {
-            public void whileOpen(ZipFile zipFile) throws Exception {
+            public void whileOpen(ZipFile zipFile, EntryIndex entries) throws Exception {
                 assertNull("The entry [" + expectedEntry + "] appears to exist and we did not expect the entry to exist",
-                        zipFile.getEntry(expectedEntry));
+                        entries.find(expectedEntry));
             }
         });
     }
 
     public static void assertEntryComment(final String expectedEntry, final String expectedComment, File actualZipFile) {
-        assertEntryExists(expectedEntry, actualZipFile);
         open(actualZipFile, new SpecificEntry(expectedEntry) {
             protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
                 assertEquals("The entry [" + expectedEntry + "] comment does not match", expectedComment, entry.getComment());
@@ -44,7 +89,6 @@ public class AssertZip {
     }
 
     public static void assertEntryActualSize(final String expectedEntry, final long expectedSize, File actualZipFile) {
-        assertEntryExists(expectedEntry, actualZipFile);
         open(actualZipFile, new SpecificEntry(expectedEntry) {
             protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
                 assertEquals("The entry [" + expectedEntry + "] expected size does not match", expectedSize, entry.getSize());
@@ -52,21 +96,115 @@ public class AssertZip {
         });
     }
 
+    public static void assertEntryCompressedSize(final String expectedEntry, final long expectedCompressedSize, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                assertEquals("The entry [" + expectedEntry + "] expected compressed size does not match", expectedCompressedSize, entry.getCompressedSize());
+            }
+        });
+    }
+
+    public static void assertEntryCompressionMethod(final String expectedEntry, final int expectedMethod, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                assertCompressionMethod(entry, expectedMethod);
+            }
+        });
+    }
+
+    public static void assertEntriesCompressionMethod(String entryPattern, final int expectedMethod, File actualZipFile) {
+        open(actualZipFile, new MatchingEntries(entryPattern) {
+            protected void eachMatchingEntryOf(ZipFile zipFile, ZipEntry entry) throws Exception {
+                assertCompressionMethod(entry, expectedMethod);
+            }
+        });
+    }
+
+    public static void assertEntryCompressionRatioBelow(final String expectedEntry, final double maximumRatio, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                assertCompressionRatioBelow(entry, maximumRatio);
+            }
+        });
+    }
+
+    public static void assertEntriesCompressionRatioBelow(String entryPattern, final double maximumRatio, File actualZipFile) {
+        open(actualZipFile, new MatchingEntries(entryPattern) {
+            protected void eachMatchingEntryOf(ZipFile zipFile, ZipEntry entry) throws Exception {
+                assertCompressionRatioBelow(entry, maximumRatio);
+            }
+        });
+    }
+
+    public static void assertEntryLastModifiedTime(final String expectedEntry, final long expectedTime, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                // zip timestamps are stored in MS-DOS format which only has a 2 second resolution
+                assertEquals("The entry [" + expectedEntry + "] last modified time does not match",
+                        dosTime(expectedTime), dosTime(entry.getTime()));
+            }
+        });
+    }
+
+    public static void assertEntryExtra(final String expectedEntry, final byte[] expectedExtra, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                assertArrayEquals("The entry [" + expectedEntry + "] extra field data does not match",
+                        expectedExtra, extraOf(entry));
+            }
+        });
+    }
+
+    public static void assertEntryHasExtraField(final String expectedEntry, final int expectedHeaderId, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                assertTrue("The entry [" + expectedEntry + "] does not have an extra field with header id [0x" + Integer.toHexString(expectedHeaderId) + "]",
+                        hasExtraField(extraOf(entry), expectedHeaderId));
+            }
+        });
+    }
+
     public static void assertEntry(String expectedEntry, String expectedContents, File actualZipFile) {
         assertEntry(expectedEntry, expectedContents.getBytes(), actualZipFile);
     }
 
     public static void assertEntry(final String expectedEntry, final byte[] expectedContents, File actualZipFile) {
-        assertEntryExists(expectedEntry, actualZipFile);
         open(actualZipFile, new SpecificEntry(expectedEntry) {
             protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
-                assertArrayEquals("The entry [" + expectedEntry + "] expected content does not match",
+                assertBytesEqual("The entry [" + expectedEntry + "] expected content does not match",
                         expectedContents, contentsOf(entry, file));
 
             }
         });
     }
 
+    public static void assertEntryStartsWith(final String expectedEntry, final byte[] expectedHeader, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                assertArrayEquals("The entry [" + expectedEntry + "] does not start with the expected bytes",
+                        expectedHeader, EntryContents.readRange(file, entry, 0, expectedHeader.length));
+            }
+        });
+    }
+
+    public static void assertEntriesStartWith(String entryPattern, final byte[] expectedHeader, File actualZipFile) {
+        open(actualZipFile, new MatchingEntries(entryPattern) {
+            protected void eachMatchingEntryOf(ZipFile zipFile, ZipEntry entry) throws Exception {
+                assertArrayEquals("The entry [" + entry.getName() + "] does not start with the expected bytes",
+                        expectedHeader, EntryContents.readRange(zipFile, entry, 0, expectedHeader.length));
+            }
+        });
+    }
+
+    public static void assertEntryRange(final String expectedEntry, final long offset, final byte[] expectedBytes, File actualZipFile) {
+        open(actualZipFile, new SpecificEntry(expectedEntry) {
+            protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
+                assertArrayEquals("The entry [" + expectedEntry + "] bytes at offset [" + offset + "] do not match",
+                        expectedBytes, EntryContents.readRange(file, entry, offset, expectedBytes.length));
+            }
+        });
+    }
+
     public static void assertEntryExists(final String expectedEntry, File actualZipFile) {
         open(actualZipFile, new SpecificEntry(expectedEntry) {
             protected void handleEntry(ZipFile file, ZipEntry entry) throws Exception {
@@ -87,19 +225,100 @@ public class AssertZip {
 
     public static void assertDirectoryEntryExist(final String expectedDirectoryPath, final File actualZip) {
         open(actualZip, new WhileZipIsOpen() {
-            public void whileOpen(ZipFile zipFile) throws Exception {
-                ZipEntry entry = findDirectoryEntryOf(zipFile, expectedDirectoryPath);
+            public void whileOpen(ZipFile zipFile, EntryIndex entries) throws Exception {
+                ZipEntry entry = findDirectoryEntryOf(entries, expectedDirectoryPath);
                 assertNotNull(notFoundMessageFor(expectedDirectoryPath), entry);
-                assertTrue("The entry [" + expectedDirectoryPath + "] is not a directory", entry.isDirectory());
+                assertTrue("The entry [" + expectedDirectoryPath + "] is not a directory", entries.isDirectory(entry));
             }
         });
     }
 
-    private static ZipEntry findDirectoryEntryOf(ZipFile zipFile, String expectedDirectoryPath) {
+    private static void assertBytesEqual(String message, byte[] expected, byte[] actual) {
+        // assertArrayEquals boxes every byte, so only use it to build the failure message
+        if (!Arrays.equals(expected, actual)) {
+            assertArrayEquals(message, expected, actual);
+        }
+    }
+
+    private static void assertCompressionMethod(ZipEntry entry, int expectedMethod) {
+        assertEquals("The entry [" + entry.getName() + "] compression method does not match, expected ["
+                + methodName(expectedMethod) + "] but was [" + methodName(entry.getMethod()) + "]", expectedMethod, entry.getMethod());
+    }
+
+    private static void assertCompressionRatioBelow(ZipEntry entry, double maximumRatio) {
+        double actualRatio = compressionRatioOf(entry);
+        assertTrue("The entry [" + entry.getName() + "] compression ratio [" + actualRatio + "] is not below [" + maximumRatio + "]",
+                actualRatio < maximumRatio);
+    }
+
+    private static double compressionRatioOf(ZipEntry entry) {
+        if (entry.getSize() <= 0) {
+            return 0.0;
+        }
+        return (double) entry.getCompressedSize() / entry.getSize();
+    }
+
+    private static String methodName(int method) {
+        switch (method) {
+            case ZipEntry.STORED:
+                return "STORED";
+            case ZipEntry.DEFLATED:
+                return "DEFLATED";
+            default:
+                return String.valueOf(method);
+        }
+    }
+
+    private static long dosTime(long time) {
+        return (time / 2000L) * 2000L;
+    }
+
+    private static byte[] extraOf(ZipEntry entry) {
+        byte[] extra = entry.getExtra();
+        if (extra == null) {
+            return new byte[0];
+        }
+        return extra;
+    }
+
+    private static boolean hasExtraField(byte[] extra, int headerId) {
+        int offset = 0;
+        while (offset + 4 <= extra.length) {
+            int id = (extra[offset] & 0xFF) | ((extra[offset + 1] & 0xFF) << 8);
+            int length = (extra[offset + 2] & 0xFF) | ((extra[offset + 3] & 0xFF) << 8);
+            if (id == headerId) {
+                return true;
+            }
+            offset += 4 + length;
+        }
+        return false;
+    }
+
+    private static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static ZipEntry findDirectoryEntryOf(EntryIndex entries, String expectedDirectoryPath) {
         String directoryPath = dirName(expectedDirectoryPath);
-        ZipEntry entry = zipFile.getEntry(directoryPath);
+        ZipEntry entry = entries.find(directoryPath);
         if (entry == null) {
-            entry = zipFile.getEntry(expectedDirectoryPath);
+            entry = entries.find(expectedDirectoryPath);
         }
         return entry;
     }
@@ -124,7 +343,7 @@ public class AssertZip {
         try {
             assertFileExists(zipFile);
             zip = new ZipFile(zipFile);
-            opener.whileOpen(zip);
+            opener.whileOpen(zip, new EntryIndex(zip, LOOKUP_MODES.get()));
         } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
@@ -133,31 +352,7 @@ public class AssertZip {
     }
 
     private static byte[] contentsOf(ZipEntry entry, ZipFile file) throws IOException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        int length = -1;
-        byte[] buffer = new byte[1024];
-
-        InputStream input = null;
-        try {
-            input = file.getInputStream(entry);
-            while ((length = input.read(buffer)) != -1) {
-                output.write(buffer, 0, length);
-            }
-        } finally {
-            close(input);
-        }
-
-        return output.toByteArray();
-    }
-
-    private static void close(InputStream input) {
-        if (input != null) {
-            try {
-                input.close();
-            } catch (IOException e) {
-
-            }
-        }
+        return EntryContents.read(file, entry);
     }
 
     private static void close(ZipFile zip) {
@@ -171,7 +366,7 @@ public class AssertZip {
     }
 
     private static interface WhileZipIsOpen {
-        void whileOpen(ZipFile zipFile) throws Exception;
+        void whileOpen(ZipFile zipFile, EntryIndex entries) throws Exception;
     }
 
     private static abstract class SpecificEntry implements WhileZipIsOpen {
@@ -181,8 +376,10 @@ public class AssertZip {
             this.entryToFind = entryToFind;
         }
 
-        public final void whileOpen(ZipFile zipFile) throws Exception {
-            handleEntry(zipFile, zipFile.getEntry(entryToFind));
+        public final void whileOpen(ZipFile zipFile, EntryIndex entries) throws Exception {
+            ZipEntry entry = entries.find(entryToFind);
+            assertNotNull(notFoundMessageFor(entryToFind), entry);
+            handleEntry(zipFile, entry);
         }
 
         protected abstract void handleEntry(ZipFile file, ZipEntry entry) throws Exception;
@@ -190,7 +387,7 @@ public class AssertZip {
     }
 
     private static abstract class EachEntry implements WhileZipIsOpen {
-        public final void whileOpen(ZipFile zipFile) throws Exception {
+        public final void whileOpen(ZipFile zipFile, EntryIndex index) throws Exception {
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
             while (entries.hasMoreElements()) {
                 eachEntryOf(zipFile, entries.nextElement());
@@ -199,4 +396,28 @@ public class AssertZip {
 
         protected abstract void eachEntryOf(ZipFile zipFile, ZipEntry entry) throws Exception;
     }
+
+    private static abstract class MatchingEntries implements WhileZipIsOpen {
+        private final String entryPattern;
+
+        protected MatchingEntries(String entryPattern) {
+            this.entryPattern = entryPattern;
+        }
+
+        public final void whileOpen(ZipFile zipFile, EntryIndex index) throws Exception {
+            Pattern pattern = globToPattern(index.normalize(entryPattern));
+            int matches = 0;
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!index.isDirectory(entry) && pattern.matcher(index.normalize(entry.getName())).matches()) {
+                    matches++;
+                    eachMatchingEntryOf(zipFile, entry);
+                }
+            }
+            assertTrue("No entries were found matching [" + entryPattern + "]", matches > 0);
+        }
+
+        protected abstract void eachMatchingEntryOf(ZipFile zipFile, ZipEntry entry) throws Exception;
+    }
 }
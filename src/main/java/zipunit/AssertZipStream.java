@@ -0,0 +1,277 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies a zip that is only available as a stream. All expectations are registered up front and
+ * evaluated during a single forward pass over the local entries; entry data is only read for the
+ * expectations that need it and is never buffered. The given stream is not closed.
+ */
+public class AssertZipStream {
+    private final Map<String, List<Expectation>> expectationsByEntry = new HashMap<String, List<Expectation>>();
+    private final Set<Expectation> expectations = new LinkedHashSet<Expectation>();
+    private int expectedNumberOfEntries = -1;
+
+    public AssertZipStream expectEntryExists(String expectedEntry) {
+        return expect(new Expectation(expectedEntry));
+    }
+
+    public AssertZipStream expectEntryDoesNotExist(final String expectedEntry) {
+        return expect(new Expectation(expectedEntry) {
+            protected void begin(ZipEntry entry) {
+                fail("The entry [" + expectedEntry + "] appears to exist and we did not expect the entry to exist");
+            }
+
+            protected void afterLastEntry() {
+
+            }
+        });
+    }
+
+    public AssertZipStream expectDirectoryEntryExist(String expectedDirectoryPath) {
+        final String directoryPath = expectedDirectoryPath.endsWith("/") ? expectedDirectoryPath : expectedDirectoryPath + "/";
+        return expect(new Expectation(expectedDirectoryPath) {
+            private boolean directory = false;
+
+            protected void begin(ZipEntry entry) {
+                directory |= entry.isDirectory();
+            }
+
+            protected void afterLastEntry() {
+                super.afterLastEntry();
+                assertTrue("The entry [" + entryName + "] is not a directory", directory);
+            }
+        }, directoryPath);
+    }
+
+    public AssertZipStream expectEntry(String expectedEntry, String expectedContents) {
+        return expectEntry(expectedEntry, expectedContents.getBytes());
+    }
+
+    public AssertZipStream expectEntry(final String expectedEntry, final byte[] expectedContents) {
+        return expect(new ContentExpectation(expectedEntry, 0, expectedContents, true) {
+            protected void end(ZipEntry entry) {
+                assertTrue("The entry [" + expectedEntry + "] expected content does not match", matches());
+            }
+        });
+    }
+
+    public AssertZipStream expectEntryStartsWith(final String expectedEntry, final byte[] expectedHeader) {
+        return expect(new ContentExpectation(expectedEntry, 0, expectedHeader, false) {
+            protected void end(ZipEntry entry) {
+                assertTrue("The entry [" + expectedEntry + "] does not start with the expected bytes", matches());
+            }
+        });
+    }
+
+    public AssertZipStream expectEntryRange(final String expectedEntry, final long offset, final byte[] expectedBytes) {
+        assertTrue("The offset [" + offset + "] can not be negative", offset >= 0);
+        return expect(new ContentExpectation(expectedEntry, offset, expectedBytes, false) {
+            protected void end(ZipEntry entry) {
+                assertTrue("The entry [" + expectedEntry + "] bytes at offset [" + offset + "] do not match", matches());
+            }
+        });
+    }
+
+    public AssertZipStream expectEntryActualSize(final String expectedEntry, final long expectedSize) {
+        return expect(new Expectation(expectedEntry) {
+            private long size;
+
+            protected void begin(ZipEntry entry) {
+                size = 0;
+            }
+
+            protected boolean needsData() {
+                return true;
+            }
+
+            protected void update(byte[] buffer, int offset, int length) {
+                size += length;
+            }
+
+            protected void end(ZipEntry entry) {
+                assertEquals("The entry [" + expectedEntry + "] expected size does not match", expectedSize, size);
+            }
+        });
+    }
+
+    public AssertZipStream expectEntryCompressionMethod(final String expectedEntry, final int expectedMethod) {
+        return expect(new Expectation(expectedEntry) {
+            protected void begin(ZipEntry entry) {
+                assertEquals("The entry [" + expectedEntry + "] compression method does not match", expectedMethod, entry.getMethod());
+            }
+        });
+    }
+
+    public AssertZipStream expectNumberOfEntriesIs(int expectedNumberOfEntries) {
+        this.expectedNumberOfEntries = expectedNumberOfEntries;
+        return this;
+    }
+
+    public void verify(InputStream actualZipStream) {
+        ZipInputStream input = new ZipInputStream(actualZipStream);
+        int numberOfEntries = 0;
+        try {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                numberOfEntries++;
+                List<Expectation> matching = expectationsByEntry.get(entry.getName());
+                if (matching != null) {
+                    verifyEntry(input, entry, matching);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("A problem occurred while reading the zip stream", e);
+        }
+
+        for (Expectation expectation : expectations) {
+            expectation.afterLastEntry();
+        }
+        if (expectedNumberOfEntries != -1) {
+            assertEquals("Number of entries do not match", expectedNumberOfEntries, numberOfEntries);
+        }
+    }
+
+    private void verifyEntry(ZipInputStream input, ZipEntry entry, List<Expectation> matching) throws IOException {
+        for (Expectation expectation : matching) {
+            expectation.found = true;
+            expectation.begin(entry);
+        }
+
+        byte[] buffer = EntryContents.buffer();
+        int length;
+        while (anyNeedData(matching) && (length = input.read(buffer)) != -1) {
+            for (Expectation expectation : matching) {
+                if (expectation.needsData()) {
+                    expectation.update(buffer, 0, length);
+                }
+            }
+        }
+
+        for (Expectation expectation : matching) {
+            expectation.end(entry);
+        }
+    }
+
+    private boolean anyNeedData(List<Expectation> matching) {
+        for (Expectation expectation : matching) {
+            if (expectation.needsData()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AssertZipStream expect(Expectation expectation, String... alternativeNames) {
+        expectations.add(expectation);
+        register(expectation.entryName, expectation);
+        for (String name : alternativeNames) {
+            register(name, expectation);
+        }
+        return this;
+    }
+
+    private void register(String name, Expectation expectation) {
+        List<Expectation> list = expectationsByEntry.get(name);
+        if (list == null) {
+            list = new ArrayList<Expectation>();
+            expectationsByEntry.put(name, list);
+        }
+        if (!list.contains(expectation)) {
+            list.add(expectation);
+        }
+    }
+
+    private static class Expectation {
+        protected final String entryName;
+        private boolean found = false;
+
+        Expectation(String entryName) {
+            this.entryName = entryName;
+        }
+
+        protected void begin(ZipEntry entry) {
+
+        }
+
+        protected boolean needsData() {
+            return false;
+        }
+
+        protected void update(byte[] buffer, int offset, int length) {
+
+        }
+
+        protected void end(ZipEntry entry) {
+
+        }
+
+        protected void afterLastEntry() {
+            assertTrue("The entry [" + entryName + "] was not found", found);
+        }
+    }
+
+    private static abstract class ContentExpectation extends Expectation {
+        private final long offset;
+        private final byte[] expectedBytes;
+        private final boolean wholeEntry;
+        private long position;
+        private boolean matches;
+
+        ContentExpectation(String entryName, long offset, byte[] expectedBytes, boolean wholeEntry) {
+            super(entryName);
+            this.offset = offset;
+            this.expectedBytes = expectedBytes;
+            this.wholeEntry = wholeEntry;
+        }
+
+        protected void begin(ZipEntry entry) {
+            position = 0;
+            matches = true;
+        }
+
+        protected boolean needsData() {
+            return matches && (wholeEntry || position < offset + expectedBytes.length);
+        }
+
+        protected void update(byte[] buffer, int start, int length) {
+            for (int i = start; i < start + length && needsData(); i++, position++) {
+                if (position >= offset + expectedBytes.length) {
+                    matches = false;
+                } else if (position >= offset && buffer[i] != expectedBytes[(int) (position - offset)]) {
+                    matches = false;
+                }
+            }
+        }
+
+        protected boolean matches() {
+            return matches && position >= offset + expectedBytes.length;
+        }
+
+        protected abstract void end(ZipEntry entry);
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the raw record layout of a zip file so entry data can be located without going through
+ * {@link java.util.zip.ZipFile}. Zip64 archives are not supported; {@link #locate(RandomAccessFile, byte[])}
+ * returns null for them so callers can fall back to the JDK.
+ */
+final class CentralDirectory {
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int END_SIGNATURE = 0x06054b50;
+    static final int LOCAL_HEADER_LENGTH = 30;
+    static final int CENTRAL_HEADER_LENGTH = 46;
+    static final int END_LENGTH = 22;
+    static final long NOT_FOUND = -1L;
+
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final long offset;
+    private final long size;
+    private final int numberOfEntries;
+    private final long endOffset;
+    private final int commentLength;
+
+    private CentralDirectory(long offset, long size, int numberOfEntries, long endOffset, int commentLength) {
+        this.offset = offset;
+        this.size = size;
+        this.numberOfEntries = numberOfEntries;
+        this.endOffset = endOffset;
+        this.commentLength = commentLength;
+    }
+
+    static CentralDirectory locate(RandomAccessFile file, byte[] buffer) throws IOException {
+        long fileLength = file.length();
+        long maxSearchLength = Math.min(fileLength, END_LENGTH + MAX_COMMENT_LENGTH);
+        CentralDirectory directory = searchForEnd(file, buffer, Math.min(maxSearchLength, buffer.length));
+        if (directory == null && maxSearchLength > buffer.length) {
+            directory = searchForEnd(file, new byte[(int) maxSearchLength], maxSearchLength);
+        }
+        return directory;
+    }
+
+    private static CentralDirectory searchForEnd(RandomAccessFile file, byte[] tail, long searchLength) throws IOException {
+        if (searchLength < END_LENGTH) {
+            return null;
+        }
+        long tailOffset = file.length() - searchLength;
+        file.seek(tailOffset);
+        file.readFully(tail, 0, (int) searchLength);
+
+        for (int i = (int) searchLength - END_LENGTH; i >= 0; i--) {
+            if (int32(tail, i) == END_SIGNATURE && i + END_LENGTH + uint16(tail, i + 20) == searchLength) {
+                int numberOfEntries = uint16(tail, i + 10);
+                long size = uint32(tail, i + 12);
+                long offset = uint32(tail, i + 16);
+                if (numberOfEntries == 0xFFFF || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) {
+                    return null;
+                }
+                return new CentralDirectory(offset, size, numberOfEntries, tailOffset + i, uint16(tail, i + 20));
+            }
+        }
+        return null;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    int getNumberOfEntries() {
+        return numberOfEntries;
+    }
+
+    long getEndOffset() {
+        return endOffset;
+    }
+
+    int getCommentLength() {
+        return commentLength;
+    }
+
+    long checksum(RandomAccessFile file, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        file.seek(offset);
+        long remaining = size;
+        while (remaining > 0) {
+            int length = (int) Math.min(buffer.length, remaining);
+            file.readFully(buffer, 0, length);
+            crc.update(buffer, 0, length);
+            remaining -= length;
+        }
+        return crc.getValue();
+    }
+
+    List<Record> records(RandomAccessFile file) throws IOException {
+        byte[] directory = new byte[(int) size];
+        file.seek(offset);
+        file.readFully(directory);
+
+        List<Record> records = new ArrayList<Record>(numberOfEntries);
+        int position = 0;
+        while (position < directory.length) {
+            if (position + CENTRAL_HEADER_LENGTH > directory.length || int32(directory, position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid central directory header at offset [" + (offset + position) + "]");
+            }
+            int nameLength = uint16(directory, position + 28);
+            int recordLength = CENTRAL_HEADER_LENGTH + nameLength + uint16(directory, position + 30) + uint16(directory, position + 32);
+            if (position + recordLength > directory.length) {
+                throw new IOException("Truncated central directory header at offset [" + (offset + position) + "]");
+            }
+            records.add(new Record(
+                    new String(directory, position + CENTRAL_HEADER_LENGTH, nameLength, UTF_8),
+                    uint16(directory, position + 8),
+                    uint16(directory, position + 10),
+                    uint32(directory, position + 16),
+                    uint32(directory, position + 20),
+                    uint32(directory, position + 24),
+                    uint32(directory, position + 42)));
+            position += recordLength;
+        }
+        return records;
+    }
+
+    static long dataOffsetOf(RandomAccessFile file, long localHeaderOffset, byte[] name, byte[] buffer) throws IOException {
+        if (localHeaderOffset + LOCAL_HEADER_LENGTH + name.length > file.length() || LOCAL_HEADER_LENGTH + name.length > buffer.length) {
+            return NOT_FOUND;
+        }
+        file.seek(localHeaderOffset);
+        file.readFully(buffer, 0, LOCAL_HEADER_LENGTH + name.length);
+        if (int32(buffer, 0) != LOCAL_HEADER_SIGNATURE || uint16(buffer, 26) != name.length
+                || !regionMatches(buffer, LOCAL_HEADER_LENGTH, name)) {
+            return NOT_FOUND;
+        }
+        return localHeaderOffset + LOCAL_HEADER_LENGTH + name.length + uint16(buffer, 28);
+    }
+
+    private static boolean regionMatches(byte[] buffer, int start, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (buffer[start + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean hasDataDescriptor(int flags) {
+        return (flags & 0x08) != 0;
+    }
+
+    static int uint16(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | ((buffer[offset + 1] & 0xFF) << 8);
+    }
+
+    static long uint32(byte[] buffer, int offset) {
+        return int32(buffer, offset) & 0xFFFFFFFFL;
+    }
+
+    static int int32(byte[] buffer, int offset) {
+        return uint16(buffer, offset) | (uint16(buffer, offset + 2) << 16);
+    }
+
+    static final class Record {
+        final String name;
+        final int flags;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Record(String name, int flags, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        boolean hasDataDescriptor() {
+            return CentralDirectory.hasDataDescriptor(flags);
+        }
+    }
+}
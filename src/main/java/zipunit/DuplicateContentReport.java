@@ -0,0 +1,252 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Groups the entries of a zip file that have identical content. Entries are first bucketed by their
+ * size and CRC from the central directory; only entries that share a bucket are inflated and hashed,
+ * spread across one worker per core.
+ */
+public class DuplicateContentReport {
+    private final List<Group> groups;
+
+    private DuplicateContentReport(List<Group> groups) {
+        this.groups = Collections.unmodifiableList(groups);
+    }
+
+    public static DuplicateContentReport of(File zip) {
+        ZipFile zipFile = null;
+        try {
+            zipFile = new ZipFile(zip);
+            List<List<ZipEntry>> candidates = candidatesOf(zipFile);
+            if (candidates.isEmpty()) {
+                return new DuplicateContentReport(new ArrayList<Group>());
+            }
+            return new DuplicateContentReport(groupsOf(zip, candidates));
+        } catch (Exception e) {
+            throw new RuntimeException("A problem occurred while looking for duplicate content in zip file", e);
+        } finally {
+            close(zipFile);
+        }
+    }
+
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    public long getWastedBytes() {
+        long wastedBytes = 0;
+        for (Group group : groups) {
+            wastedBytes += group.getWastedBytes();
+        }
+        return wastedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(groups.size()).append(" duplicate content group(s) wasting ").append(getWastedBytes()).append(" bytes");
+        for (Group group : groups) {
+            builder.append("\n\t").append(group);
+        }
+        return builder.toString();
+    }
+
+    private static List<List<ZipEntry>> candidatesOf(ZipFile zipFile) {
+        Map<String, List<ZipEntry>> buckets = new LinkedHashMap<String, List<ZipEntry>>();
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.isDirectory() || entry.getSize() <= 0) {
+                continue;
+            }
+            String key = entry.getSize() + ":" + entry.getCrc();
+            List<ZipEntry> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<ZipEntry>(2);
+                buckets.put(key, bucket);
+            }
+            bucket.add(entry);
+        }
+
+        List<List<ZipEntry>> candidates = new ArrayList<List<ZipEntry>>();
+        for (List<ZipEntry> bucket : buckets.values()) {
+            if (bucket.size() > 1) {
+                candidates.add(bucket);
+            }
+        }
+        return candidates;
+    }
+
+    private static List<Group> groupsOf(File zip, List<List<ZipEntry>> candidates) throws Exception {
+        final List<ZipEntry> entriesToHash = new ArrayList<ZipEntry>();
+        for (List<ZipEntry> bucket : candidates) {
+            entriesToHash.addAll(bucket);
+        }
+        String[] digests = digestsOf(zip, entriesToHash);
+
+        List<Group> groups = new ArrayList<Group>();
+        int index = 0;
+        for (List<ZipEntry> bucket : candidates) {
+            Map<String, List<ZipEntry>> byDigest = new LinkedHashMap<String, List<ZipEntry>>();
+            for (ZipEntry entry : bucket) {
+                String digest = digests[index++];
+                List<ZipEntry> sameContent = byDigest.get(digest);
+                if (sameContent == null) {
+                    sameContent = new ArrayList<ZipEntry>(2);
+                    byDigest.put(digest, sameContent);
+                }
+                sameContent.add(entry);
+            }
+            for (List<ZipEntry> sameContent : byDigest.values()) {
+                if (sameContent.size() > 1) {
+                    groups.add(new Group(sameContent));
+                }
+            }
+        }
+        Collections.sort(groups, new Comparator<Group>() {
+            public int compare(Group group, Group other) {
+                return Long.valueOf(other.getWastedBytes()).compareTo(group.getWastedBytes());
+            }
+        });
+        return groups;
+    }
+
+    private static String[] digestsOf(final File zip, final List<ZipEntry> entries) throws Exception {
+        final String[] digests = new String[entries.size()];
+        final AtomicInteger nextEntry = new AtomicInteger(0);
+        int workers = Math.min(Runtime.getRuntime().availableProcessors(), entries.size());
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        MessageDigest messageDigest = newMessageDigest();
+                        byte[] buffer = new byte[EntryContents.BUFFER_SIZE];
+                        ZipFile zipFile = new ZipFile(zip);
+                        try {
+                            int index;
+                            while ((index = nextEntry.getAndIncrement()) < entries.size()) {
+                                digests[index] = digestOf(zipFile, entries.get(index), messageDigest, buffer);
+                            }
+                            return null;
+                        } finally {
+                            close(zipFile);
+                        }
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Unable to hash the entries of [" + zip.getName() + "]", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return digests;
+    }
+
+    private static String digestOf(ZipFile zipFile, ZipEntry entry, MessageDigest messageDigest, byte[] buffer) throws IOException {
+        messageDigest.reset();
+        InputStream input = zipFile.getInputStream(entry);
+        try {
+            int length;
+            while ((length = input.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, length);
+            }
+        } finally {
+            input.close();
+        }
+        return new BigInteger(1, messageDigest.digest()).toString(16);
+    }
+
+    private static MessageDigest newMessageDigest() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256");
+    }
+
+    private static void close(ZipFile zip) {
+        if (zip != null) {
+            try {
+                zip.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    public static class Group {
+        private final List<String> entryNames = new ArrayList<String>();
+        private final long size;
+        private final long wastedBytes;
+
+        private Group(List<ZipEntry> entries) {
+            long totalCompressedSize = 0;
+            long smallestCompressedSize = Long.MAX_VALUE;
+            for (ZipEntry entry : entries) {
+                entryNames.add(entry.getName());
+                totalCompressedSize += entry.getCompressedSize();
+                smallestCompressedSize = Math.min(smallestCompressedSize, entry.getCompressedSize());
+            }
+            this.size = entries.get(0).getSize();
+            this.wastedBytes = totalCompressedSize - smallestCompressedSize;
+        }
+
+        public List<String> getEntryNames() {
+            return Collections.unmodifiableList(entryNames);
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getWastedBytes() {
+            return wastedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return entryNames + " (" + size + " bytes each, " + wastedBytes + " wasted bytes)";
+        }
+    }
+}
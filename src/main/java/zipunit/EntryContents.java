@@ -0,0 +1,291 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads the contents of entries reusing a per-thread copy buffer and {@link Inflater}, so repeated
+ * assertions do not allocate a new native inflater and a growing output buffer for every entry.
+ * <p>
+ * {@link ZipFile} does not expose where an entry's data starts, so the local header offsets are read
+ * from the central directory once per version of an archive and cached. Each read still opens its own
+ * file handle, trading that cost for not allocating an inflater.
+ */
+final class EntryContents {
+    static final int BUFFER_SIZE = 8192;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] DUMMY_INPUT = new byte[1];
+    private static final ArchiveCache<Map<String, Long>> LOCAL_HEADER_OFFSETS = new ArchiveCache<Map<String, Long>>(8);
+
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private static final ThreadLocal<byte[]> DISCARD_BUFFER = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private EntryContents() {
+
+    }
+
+    static byte[] buffer() {
+        return BUFFER.get();
+    }
+
+    static Inflater inflater() {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        return inflater;
+    }
+
+    static byte[] read(ZipFile zipFile, ZipEntry entry) throws IOException {
+        if (!canReadRaw(entry)) {
+            return read(zipFile.getInputStream(entry), entry.getSize());
+        }
+
+        File archive = new File(zipFile.getName());
+        RandomAccessFile file = new RandomAccessFile(archive, "r");
+        try {
+            long dataOffset = dataOffsetOf(archive, file, entry);
+            if (dataOffset == CentralDirectory.NOT_FOUND) {
+                return read(zipFile.getInputStream(entry), entry.getSize());
+            }
+            byte[] contents = new byte[(int) entry.getSize()];
+            file.seek(dataOffset);
+            if (entry.getMethod() == ZipEntry.STORED) {
+                file.readFully(contents);
+            } else {
+                inflate(file, entry, 0, contents, true);
+            }
+            return contents;
+        } finally {
+            close(file);
+        }
+    }
+
+    static byte[] readRange(ZipFile zipFile, ZipEntry entry, long offset, int length) throws IOException {
+        assertValidOffset(offset);
+        if (!canReadRaw(entry)) {
+            return readRange(zipFile.getInputStream(entry), offset, length);
+        }
+
+        File archive = new File(zipFile.getName());
+        RandomAccessFile file = new RandomAccessFile(archive, "r");
+        try {
+            long dataOffset = dataOffsetOf(archive, file, entry);
+            if (dataOffset == CentralDirectory.NOT_FOUND) {
+                return readRange(zipFile.getInputStream(entry), offset, length);
+            }
+            byte[] range = new byte[(int) Math.max(0, Math.min(length, entry.getSize() - offset))];
+            if (entry.getMethod() == ZipEntry.STORED) {
+                file.seek(dataOffset + offset);
+                file.readFully(range);
+            } else {
+                file.seek(dataOffset);
+                inflate(file, entry, offset, range, false);
+            }
+            return range;
+        } finally {
+            close(file);
+        }
+    }
+
+    static byte[] readRange(InputStream input, long offset, int length) throws IOException {
+        try {
+            assertValidOffset(offset);
+            long skipped = 0;
+            while (skipped < offset) {
+                long skip = input.skip(offset - skipped);
+                if (skip <= 0) {
+                    if (input.read() == -1) {
+                        break;
+                    }
+                    skip = 1;
+                }
+                skipped += skip;
+            }
+            byte[] range = new byte[length];
+            int read = 0;
+            int count;
+            while (read < range.length && (count = input.read(range, read, range.length - read)) != -1) {
+                read += count;
+            }
+            if (read == range.length) {
+                return range;
+            }
+            byte[] shorter = new byte[read];
+            System.arraycopy(range, 0, shorter, 0, read);
+            return shorter;
+        } finally {
+            close(input);
+        }
+    }
+
+    static byte[] read(InputStream input, long size) throws IOException {
+        try {
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                return readUnknownSize(input);
+            }
+            byte[] contents = new byte[(int) size];
+            int offset = 0;
+            int length;
+            while (offset < contents.length && (length = input.read(contents, offset, contents.length - offset)) != -1) {
+                offset += length;
+            }
+            if (offset != contents.length || input.read() != -1) {
+                throw new ZipException("The entry contents do not match the recorded size of " + size + " bytes");
+            }
+            return contents;
+        } finally {
+            close(input);
+        }
+    }
+
+    static long dataOffsetOf(File archive, RandomAccessFile file, ZipEntry entry) throws IOException {
+        Long localHeaderOffset = localHeaderOffsetsOf(archive, file).get(entry.getName());
+        if (localHeaderOffset == null) {
+            return CentralDirectory.NOT_FOUND;
+        }
+        return CentralDirectory.dataOffsetOf(file, localHeaderOffset, entry.getName().getBytes(UTF_8), buffer());
+    }
+
+    private static Map<String, Long> localHeaderOffsetsOf(File archive, RandomAccessFile file) throws IOException {
+        ArchiveKey key = ArchiveKey.of(archive);
+        Map<String, Long> offsets = LOCAL_HEADER_OFFSETS.get(key);
+        if (offsets == null) {
+            offsets = new HashMap<String, Long>();
+            Set<String> names = new HashSet<String>();
+            CentralDirectory directory = CentralDirectory.locate(file, buffer());
+            if (directory != null) {
+                for (CentralDirectory.Record record : directory.records(file)) {
+                    if (!names.add(record.name)) {
+                        // which of the duplicates ZipFile returns is up to the JDK, so leave them to ZipFile
+                        offsets.remove(record.name);
+                    } else if (record.localHeaderOffset != 0xFFFFFFFFL) {
+                        offsets.put(record.name, record.localHeaderOffset);
+                    }
+                }
+            }
+            LOCAL_HEADER_OFFSETS.put(key, offsets);
+        }
+        return offsets;
+    }
+
+    private static void assertValidOffset(long offset) {
+        assertTrue("The offset [" + offset + "] can not be negative", offset >= 0);
+    }
+
+    private static boolean canReadRaw(ZipEntry entry) {
+        return entry.getSize() >= 0 && entry.getSize() <= Integer.MAX_VALUE && entry.getCompressedSize() >= 0
+                && (entry.getMethod() == ZipEntry.STORED || entry.getMethod() == ZipEntry.DEFLATED);
+    }
+
+    private static void inflate(RandomAccessFile file, ZipEntry entry, long skip, byte[] target, boolean toEnd) throws IOException {
+        Inflater inflater = inflater();
+        byte[] buffer = buffer();
+        long remaining = entry.getCompressedSize();
+        int offset = 0;
+        try {
+            while (!inflater.finished() && (toEnd || offset < target.length)) {
+                if (inflater.needsInput()) {
+                    if (remaining > 0) {
+                        int length = (int) Math.min(buffer.length, remaining);
+                        file.readFully(buffer, 0, length);
+                        remaining -= length;
+                        inflater.setInput(buffer, 0, length);
+                    } else if (remaining == 0) {
+                        // a "nowrap" inflater may need one extra byte to detect the end of the stream
+                        remaining = -1;
+                        inflater.setInput(DUMMY_INPUT, 0, 1);
+                    } else {
+                        throw new ZipException("Unexpected end of compressed data for entry [" + entry.getName() + "]");
+                    }
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("The entry [" + entry.getName() + "] requires a preset dictionary");
+                }
+                if (skip > 0) {
+                    byte[] discard = DISCARD_BUFFER.get();
+                    skip -= inflater.inflate(discard, 0, (int) Math.min(discard.length, skip));
+                } else if (offset < target.length) {
+                    offset += inflater.inflate(target, offset, target.length - offset);
+                } else if (inflater.inflate(new byte[1]) > 0) {
+                    throw new ZipException("The entry [" + entry.getName() + "] is larger than its recorded size");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("The entry [" + entry.getName() + "] has invalid compressed data: " + e.getMessage());
+        }
+        if (offset != target.length) {
+            throw new ZipException("The entry [" + entry.getName() + "] is smaller than its recorded size");
+        }
+    }
+
+    private static byte[] readUnknownSize(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = buffer();
+        int length;
+        while ((length = input.read(buffer)) != -1) {
+            output.write(buffer, 0, length);
+        }
+        return output.toByteArray();
+    }
+
+    private static void close(InputStream input) {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    private static void close(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Looks up entries of an open zip file by name. With no lookup modes this is the exact lookup of
+ * {@link ZipFile#getEntry(String)}; otherwise a hash index of normalized entry names is built on the
+ * first lookup. The index is cached per archive, lookup modes and checksum of the central directory, so
+ * repeated assertions against the same archive only pay for reading its central directory.
+ */
+final class EntryIndex {
+    private static final ArchiveCache<Map<String, String>> NAMES = new ArchiveCache<Map<String, String>>(8);
+
+    private final ZipFile zipFile;
+    private final Set<LookupMode> modes;
+    private Map<String, String> namesByNormalizedName;
+
+    EntryIndex(ZipFile zipFile, Set<LookupMode> modes) {
+        this.zipFile = zipFile;
+        this.modes = modes;
+    }
+
+    ZipEntry find(String entryName) {
+        if (modes.isEmpty()) {
+            return zipFile.getEntry(entryName);
+        }
+        if (namesByNormalizedName == null) {
+            namesByNormalizedName = index();
+        }
+        String name = nameOf(entryName);
+        return name == null ? null : zipFile.getEntry(name);
+    }
+
+    private String nameOf(String entryName) {
+        String normalizedName = normalize(entryName);
+        String name = namesByNormalizedName.get(normalizedName);
+        if (name == null && !normalizedName.endsWith("/")) {
+            // like ZipFile.getEntry, a name without a trailing slash also finds the directory entry
+            name = namesByNormalizedName.get(normalizedName + "/");
+        }
+        return name;
+    }
+
+    boolean isDirectory(ZipEntry entry) {
+        return entry.isDirectory() || normalize(entry.getName()).endsWith("/");
+    }
+
+    String normalize(String entryName) {
+        return normalize(entryName, modes);
+    }
+
+    static String normalize(String entryName, Set<LookupMode> modes) {
+        String name = entryName;
+        if (modes.contains(LookupMode.NORMALIZED_SEPARATORS)) {
+            name = normalizeSeparators(name);
+        }
+        if (modes.contains(LookupMode.UNICODE_NFC)) {
+            name = Normalizer.normalize(name, Normalizer.Form.NFC);
+        }
+        if (modes.contains(LookupMode.CASE_INSENSITIVE)) {
+            name = name.toLowerCase(Locale.ROOT);
+        }
+        return name;
+    }
+
+    private Map<String, String> index() {
+        ArchiveKey key = key();
+        if (key == null) {
+            return buildIndex();
+        }
+        Map<String, String> index = NAMES.get(key);
+        if (index == null) {
+            index = buildIndex();
+            NAMES.put(key, index);
+        }
+        return index;
+    }
+
+    private ArchiveKey key() {
+        // a rebuilt archive can keep its length and modification time, so the names are part of the key too
+        File archive = new File(zipFile.getName());
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(archive, "r");
+            byte[] buffer = new byte[EntryContents.BUFFER_SIZE];
+            CentralDirectory directory = CentralDirectory.locate(file, buffer);
+            if (directory == null) {
+                return null;
+            }
+            return ArchiveKey.of(archive, Arrays.asList(EnumSet.copyOf(modes), directory.getOffset(),
+                    directory.getNumberOfEntries(), directory.checksum(file, buffer)));
+        } catch (IOException e) {
+            return null;
+        } finally {
+            close(file);
+        }
+    }
+
+    private Map<String, String> buildIndex() {
+        Map<String, String> index = new HashMap<String, String>(Math.max(16, zipFile.size() * 4 / 3 + 1));
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String normalizedName = normalize(entry.getName());
+            if (!index.containsKey(normalizedName)) {
+                index.put(normalizedName, entry.getName());
+            }
+        }
+        return index;
+    }
+
+    private static void close(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    private static String normalizeSeparators(String entryName) {
+        String name = entryName.replace('\\', '/');
+        while (name.indexOf("//") != -1) {
+            name = name.replace("//", "/");
+        }
+        while (name.indexOf("/./") != -1) {
+            name = name.replace("/./", "/");
+        }
+        while (name.startsWith("./") || name.startsWith("/")) {
+            name = name.substring(name.startsWith("/") ? 1 : 2);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * A rule that scopes {@link AssertZip#useLookupModes(LookupMode...)} to each test, so lookup modes
+ * can not leak into later tests run by the same thread. Without any modes the rule only restores exact
+ * lookup after each test, for tests that choose their own modes.
+ * <pre>
+ * &#64;Rule
+ * public LookupModes lookupModes = new LookupModes(LookupMode.CASE_INSENSITIVE);
+ * </pre>
+ */
+public class LookupModes implements TestRule {
+    private final LookupMode[] modes;
+
+    public LookupModes(LookupMode... modes) {
+        this.modes = modes.clone();
+    }
+
+    public Statement apply(final Statement base, Description description) {
+        return new Statement() {
+            public void evaluate() throws Throwable {
+                AssertZip.useLookupModes(modes);
+                try {
+                    base.evaluate();
+                } finally {
+                    AssertZip.useExactLookup();
+                }
+            }
+        };
+    }
+}
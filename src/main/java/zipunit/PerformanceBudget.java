@@ -0,0 +1,256 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * A rule for putting time and allocation budgets on a block of code. The block is run a number of
+ * warm-up iterations before the measured iterations, and budgets are checked against the median of
+ * the measured iterations so a single noisy run does not fail the test. Failures include a summary
+ * of every measured iteration.
+ * <pre>
+ * &#64;Rule
+ * public PerformanceBudget budget = new PerformanceBudget().withWarmUpIterations(5).withMeasuredIterations(20);
+ *
+ * budget.measure(task).assertMedianWallTimeAtMost(250, TimeUnit.MILLISECONDS).assertMedianAllocatedBytesAtMost(1024);
+ * </pre>
+ */
+public class PerformanceBudget implements TestRule {
+    private int warmUpIterations = 5;
+    private int measuredIterations = 20;
+    private String testName = "";
+
+    public PerformanceBudget withWarmUpIterations(int warmUpIterations) {
+        assertTrue("The number of warm-up iterations can not be negative", warmUpIterations >= 0);
+        this.warmUpIterations = warmUpIterations;
+        return this;
+    }
+
+    public PerformanceBudget withMeasuredIterations(int measuredIterations) {
+        assertTrue("At least one measured iteration is required", measuredIterations > 0);
+        this.measuredIterations = measuredIterations;
+        return this;
+    }
+
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            public void evaluate() throws Throwable {
+                testName = description.getMethodName();
+                try {
+                    base.evaluate();
+                } finally {
+                    testName = "";
+                }
+            }
+        };
+    }
+
+    public Measurement measure(Task task) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        boolean cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        Method threadAllocatedBytes = threadAllocatedBytesOf(threadMXBean);
+        boolean allocationSupported = threadAllocatedBytes != null;
+        Object[] threadId = new Object[]{Thread.currentThread().getId()};
+
+        try {
+            for (int i = 0; i < warmUpIterations; i++) {
+                task.perform();
+            }
+
+            long[] wallTimes = new long[measuredIterations];
+            long[] cpuTimes = cpuTimeSupported ? new long[measuredIterations] : null;
+            long[] allocatedBytes = allocationSupported ? new long[measuredIterations] : null;
+            for (int i = 0; i < measuredIterations; i++) {
+                long startAllocatedBytes = allocationSupported ? allocatedBytes(threadAllocatedBytes, threadMXBean, threadId) : 0;
+                long startCpuTime = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+                long startWallTime = System.nanoTime();
+
+                task.perform();
+
+                wallTimes[i] = System.nanoTime() - startWallTime;
+                if (cpuTimeSupported) {
+                    cpuTimes[i] = threadMXBean.getCurrentThreadCpuTime() - startCpuTime;
+                }
+                if (allocationSupported) {
+                    allocatedBytes[i] = allocatedBytes(threadAllocatedBytes, threadMXBean, threadId) - startAllocatedBytes;
+                }
+            }
+            return new Measurement(testName, wallTimes, cpuTimes, allocatedBytes);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("A problem occurred while measuring the task", e);
+        }
+    }
+
+    private static Method threadAllocatedBytesOf(ThreadMXBean threadMXBean) {
+        // com.sun.management is not available on every JVM, so it is only ever used reflectively
+        try {
+            Class<?> allocationMXBean = Class.forName("com.sun.management.ThreadMXBean");
+            if (!allocationMXBean.isInstance(threadMXBean)
+                    || !Boolean.TRUE.equals(allocationMXBean.getMethod("isThreadAllocatedMemorySupported").invoke(threadMXBean))
+                    || !Boolean.TRUE.equals(allocationMXBean.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadMXBean))) {
+                return null;
+            }
+            return allocationMXBean.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (Exception e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    private static long allocatedBytes(Method threadAllocatedBytes, ThreadMXBean threadMXBean, Object[] threadId) throws Exception {
+        return (Long) threadAllocatedBytes.invoke(threadMXBean, threadId);
+    }
+
+    public interface Task {
+        void perform() throws Exception;
+    }
+
+    public static class Measurement {
+        private final String testName;
+        private final Statistics wallTimes;
+        private final Statistics cpuTimes;
+        private final Statistics allocatedBytes;
+
+        private Measurement(String testName, long[] wallTimes, long[] cpuTimes, long[] allocatedBytes) {
+            this.testName = testName;
+            this.wallTimes = new Statistics(wallTimes);
+            this.cpuTimes = cpuTimes == null ? null : new Statistics(cpuTimes);
+            this.allocatedBytes = allocatedBytes == null ? null : new Statistics(allocatedBytes);
+        }
+
+        public Measurement assertMedianWallTimeAtMost(long maximum, TimeUnit unit) {
+            assertWithinBudget("wall time", wallTimes, unit.toNanos(maximum), NANOSECONDS);
+            return this;
+        }
+
+        public Measurement assertMedianCpuTimeAtMost(long maximum, TimeUnit unit) {
+            assumeTrue("Thread CPU time is not supported by this JVM", cpuTimes != null);
+            assertWithinBudget("thread CPU time", cpuTimes, unit.toNanos(maximum), NANOSECONDS);
+            return this;
+        }
+
+        public Measurement assertMedianAllocatedBytesAtMost(long maximumBytes) {
+            assumeTrue("Thread allocation tracking is not supported by this JVM", allocatedBytes != null);
+            assertWithinBudget("allocated bytes", allocatedBytes, maximumBytes, BYTES);
+            return this;
+        }
+
+        public long getMedianWallTime(TimeUnit unit) {
+            return unit.convert(wallTimes.median, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMedianCpuTime(TimeUnit unit) {
+            assumeTrue("Thread CPU time is not supported by this JVM", cpuTimes != null);
+            return unit.convert(cpuTimes.median, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMedianAllocatedBytes() {
+            assumeTrue("Thread allocation tracking is not supported by this JVM", allocatedBytes != null);
+            return allocatedBytes.median;
+        }
+
+        private void assertWithinBudget(String metric, Statistics statistics, long budget, Format format) {
+            assertTrue((testName.length() > 0 ? "[" + testName + "] " : "") + "Median " + metric + " of "
+                            + format.format(statistics.median) + " exceeded the budget of " + format.format(budget) + "\n" + this,
+                    statistics.median <= budget);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("\t      wall time: ").append(wallTimes.summary(NANOSECONDS));
+            if (cpuTimes != null) {
+                builder.append("\n\tthread CPU time: ").append(cpuTimes.summary(NANOSECONDS));
+            }
+            if (allocatedBytes != null) {
+                builder.append("\n\tallocated bytes: ").append(allocatedBytes.summary(BYTES));
+            }
+            return builder.toString();
+        }
+    }
+
+    private static final Format NANOSECONDS = new Format() {
+        public String format(double value) {
+            return String.format(Locale.ROOT, "%.3f ms", value / 1000000.0);
+        }
+    };
+
+    private static final Format BYTES = new Format() {
+        public String format(double value) {
+            return String.format(Locale.ROOT, "%.0f bytes", value);
+        }
+    };
+
+    private interface Format {
+        String format(double value);
+    }
+
+    private static class Statistics {
+        private final int count;
+        private final long min;
+        private final long median;
+        private final double mean;
+        private final long percentile90;
+        private final long max;
+        private final double standardDeviation;
+
+        private Statistics(long[] samples) {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            count = sorted.length;
+            min = sorted[0];
+            max = sorted[count - 1];
+            median = count % 2 == 1 ? sorted[count / 2] : (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+            percentile90 = sorted[(int) Math.ceil(count * 0.9) - 1];
+
+            double sum = 0;
+            for (long sample : sorted) {
+                sum += sample;
+            }
+            mean = sum / count;
+
+            double squaredDifferences = 0;
+            for (long sample : sorted) {
+                squaredDifferences += (sample - mean) * (sample - mean);
+            }
+            standardDeviation = Math.sqrt(squaredDifferences / count);
+        }
+
+        private String summary(Format format) {
+            return "n=" + count
+                    + ", min=" + format.format(min)
+                    + ", median=" + format.format(median)
+                    + ", mean=" + format.format(mean)
+                    + ", p90=" + format.format(percentile90)
+                    + ", max=" + format.format(max)
+                    + ", stddev=" + format.format(standardDeviation);
+        }
+    }
+}
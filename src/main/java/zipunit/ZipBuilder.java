@@ -14,17 +14,33 @@
 package zipunit;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class ZipBuilder {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int UTF_8_FLAG = 0x800;
     private File folder;
     private ArrayList<Entry> entries = new ArrayList<Entry>();
 
@@ -73,9 +89,17 @@ public class ZipBuilder {
             for (Entry entry : entries) {
                 ZipEntry zipEntry = new ZipEntry(entry.name);
                 zipEntry.setComment(entry.comment);
-                output.putNextEntry(zipEntry);
-                if (entry.content != null) {
-                    copyContent(output, entry.content);
+                zipEntry.setExtra(entry.extra);
+                if (entry.time != -1) {
+                    zipEntry.setTime(entry.time);
+                }
+                if (entry.method == ZipEntry.STORED) {
+                    writeStoredEntry(output, zipEntry, entry.content);
+                } else {
+                    output.putNextEntry(zipEntry);
+                    if (entry.content != null) {
+                        copyContent(output, entry.content);
+                    }
                 }
                 output.closeEntry();
             }
@@ -88,7 +112,234 @@ public class ZipBuilder {
         }
     }
 
-    private void copyContent(ZipOutputStream output, InputStream input) throws IOException {
+    public File appendTo(File existingZip) {
+        RandomAccessFile file = null;
+        CentralDirectory directory = null;
+        byte[] originalEnd = null;
+        try {
+            file = new RandomAccessFile(existingZip, "rw");
+            directory = CentralDirectory.locate(file, new byte[EntryContents.BUFFER_SIZE]);
+            assertNotNull("Only zip files with a readable (non-zip64) central directory can be appended to", directory);
+            assertTrue("Appending would exceed the maximum number of entries of a non-zip64 zip file",
+                    directory.getNumberOfEntries() + entries.size() < 0xFFFF);
+            assertNoDuplicateNames(directory.records(file));
+
+            // everything from the central directory on is overwritten, keep it to restore on failure
+            originalEnd = read(file, directory.getOffset(), (int) (file.length() - directory.getOffset()));
+            byte[] existingRecords = read(file, directory.getOffset(), (int) directory.getSize());
+            byte[] comment = read(file, directory.getEndOffset() + CentralDirectory.END_LENGTH, directory.getCommentLength());
+
+            ByteArrayOutputStream newRecords = new ByteArrayOutputStream();
+            file.seek(directory.getOffset());
+            for (Entry entry : entries) {
+                appendEntry(file, entry, newRecords);
+            }
+
+            long centralDirectoryOffset = file.getFilePointer();
+            assertTrue("Appending would exceed the maximum size of a non-zip64 zip file", centralDirectoryOffset < 0xFFFFFFFFL);
+            file.write(existingRecords);
+            newRecords.writeTo(new RandomAccessFileOutputStream(file));
+
+            ByteArrayOutputStream end = new ByteArrayOutputStream(CentralDirectory.END_LENGTH + comment.length);
+            writeInt(end, CentralDirectory.END_SIGNATURE);
+            writeShort(end, 0);
+            writeShort(end, 0);
+            writeShort(end, directory.getNumberOfEntries() + entries.size());
+            writeShort(end, directory.getNumberOfEntries() + entries.size());
+            writeInt(end, existingRecords.length + newRecords.size());
+            writeInt(end, centralDirectoryOffset);
+            writeShort(end, comment.length);
+            end.write(comment);
+            file.write(end.toByteArray());
+            file.setLength(file.getFilePointer());
+            return existingZip;
+        } catch (AssertionError e) {
+            restore(file, directory, originalEnd);
+            throw e;
+        } catch (Exception e) {
+            restore(file, directory, originalEnd);
+            throw new RuntimeException("A problem occurred while appending to zip file", e);
+        } finally {
+            close(file);
+        }
+    }
+
+    private void assertNoDuplicateNames(List<CentralDirectory.Record> existingRecords) throws ZipException {
+        Set<String> names = new HashSet<String>();
+        for (CentralDirectory.Record record : existingRecords) {
+            names.add(record.name);
+        }
+        for (Entry entry : entries) {
+            if (!names.add(entry.name)) {
+                throw new ZipException("duplicate entry: " + entry.name);
+            }
+        }
+    }
+
+    private void restore(RandomAccessFile file, CentralDirectory directory, byte[] originalEnd) {
+        if (originalEnd == null) {
+            return;
+        }
+        try {
+            file.seek(directory.getOffset());
+            file.write(originalEnd);
+            file.setLength(directory.getOffset() + originalEnd.length);
+        } catch (IOException e) {
+
+        }
+    }
+
+    private void appendEntry(RandomAccessFile file, Entry entry, ByteArrayOutputStream centralDirectory) throws IOException {
+        byte[] name = entry.name.getBytes(UTF_8);
+        byte[] extra = entry.extra == null ? new byte[0] : entry.extra;
+        byte[] comment = entry.comment == null ? new byte[0] : entry.comment.getBytes(UTF_8);
+        int versionNeeded = entry.method == ZipEntry.STORED ? 10 : 20;
+        long dosTime = dosTime(entry.time == -1 ? System.currentTimeMillis() : entry.time);
+        long localHeaderOffset = file.getFilePointer();
+
+        ByteArrayOutputStream localHeader = new ByteArrayOutputStream(CentralDirectory.LOCAL_HEADER_LENGTH + name.length + extra.length);
+        writeInt(localHeader, CentralDirectory.LOCAL_HEADER_SIGNATURE);
+        writeShort(localHeader, versionNeeded);
+        writeShort(localHeader, UTF_8_FLAG);
+        writeShort(localHeader, entry.method);
+        writeInt(localHeader, dosTime);
+        writeInt(localHeader, 0);
+        writeInt(localHeader, 0);
+        writeInt(localHeader, 0);
+        writeShort(localHeader, name.length);
+        writeShort(localHeader, extra.length);
+        localHeader.write(name);
+        localHeader.write(extra);
+        file.write(localHeader.toByteArray());
+
+        CRC32 crc = new CRC32();
+        long dataOffset = file.getFilePointer();
+        long size = writeContent(file, entry, crc);
+        long compressedSize = file.getFilePointer() - dataOffset;
+        assertTrue("Appending would exceed the maximum size of a non-zip64 zip file", file.getFilePointer() < 0xFFFFFFFFL);
+
+        // the sizes are only known once the content has been written, so patch them into the local header
+        ByteArrayOutputStream sizes = new ByteArrayOutputStream(12);
+        writeInt(sizes, crc.getValue());
+        writeInt(sizes, compressedSize);
+        writeInt(sizes, size);
+        file.seek(localHeaderOffset + 14);
+        file.write(sizes.toByteArray());
+        file.seek(dataOffset + compressedSize);
+
+        writeInt(centralDirectory, CentralDirectory.CENTRAL_HEADER_SIGNATURE);
+        writeShort(centralDirectory, versionNeeded);
+        writeShort(centralDirectory, versionNeeded);
+        writeShort(centralDirectory, UTF_8_FLAG);
+        writeShort(centralDirectory, entry.method);
+        writeInt(centralDirectory, dosTime);
+        writeInt(centralDirectory, crc.getValue());
+        writeInt(centralDirectory, compressedSize);
+        writeInt(centralDirectory, size);
+        writeShort(centralDirectory, name.length);
+        writeShort(centralDirectory, extra.length);
+        writeShort(centralDirectory, comment.length);
+        writeShort(centralDirectory, 0);
+        writeShort(centralDirectory, 0);
+        writeInt(centralDirectory, 0);
+        writeInt(centralDirectory, localHeaderOffset);
+        centralDirectory.write(name);
+        centralDirectory.write(extra);
+        centralDirectory.write(comment);
+    }
+
+    private long writeContent(RandomAccessFile file, Entry entry, CRC32 crc) throws IOException {
+        if (entry.content == null) {
+            if (entry.method == ZipEntry.DEFLATED) {
+                writeDeflated(file, new ByteArrayInputStream(new byte[0]), crc);
+            }
+            return 0;
+        }
+        if (entry.method == ZipEntry.STORED) {
+            return writeStored(file, entry.content, crc);
+        }
+        return writeDeflated(file, entry.content, crc);
+    }
+
+    private long writeStored(RandomAccessFile file, InputStream input, CRC32 crc) throws IOException {
+        byte[] buffer = new byte[1024];
+        long size = 0;
+        int length = -1;
+        try {
+            while ((length = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, length);
+                file.write(buffer, 0, length);
+                size += length;
+            }
+        } finally {
+            close(input);
+        }
+        return size;
+    }
+
+    private long writeDeflated(RandomAccessFile file, InputStream input, CRC32 crc) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        DeflaterOutputStream output = new DeflaterOutputStream(new RandomAccessFileOutputStream(file), deflater);
+        CheckedInputStream checkedInput = new CheckedInputStream(input, crc);
+        try {
+            copyContent(output, checkedInput);
+            output.finish();
+            return deflater.getBytesRead();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] read(RandomAccessFile file, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        file.seek(offset);
+        file.readFully(bytes);
+        return bytes;
+    }
+
+    private static long dosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (long) (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private static void writeShort(OutputStream output, int value) throws IOException {
+        output.write(value & 0xFF);
+        output.write((value >>> 8) & 0xFF);
+    }
+
+    private static void writeInt(OutputStream output, long value) throws IOException {
+        writeShort(output, (int) (value & 0xFFFF));
+        writeShort(output, (int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeStoredEntry(ZipOutputStream output, ZipEntry zipEntry, InputStream content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        if (content != null) {
+            copyContent(buffer, content);
+        }
+        byte[] data = buffer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(data.length);
+        zipEntry.setCompressedSize(data.length);
+        zipEntry.setCrc(crc.getValue());
+        output.putNextEntry(zipEntry);
+        output.write(data);
+    }
+
+    private void copyContent(OutputStream output, InputStream input) throws IOException {
         byte[] buffer = new byte[1024];
         int length = -1;
         try {
@@ -111,6 +362,16 @@ public class ZipBuilder {
         }
     }
 
+    private void close(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
     private void close(ZipOutputStream output) {
         if (output != null) {
             try {
@@ -121,6 +382,24 @@ public class ZipBuilder {
         }
     }
 
+    private static class RandomAccessFileOutputStream extends OutputStream {
+        private final RandomAccessFile file;
+
+        private RandomAccessFileOutputStream(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            file.write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            file.write(buffer, offset, length);
+        }
+    }
+
     public static class DirectoryEntry extends Entry {
         public DirectoryEntry(String name) {
             super(dirName(name), (InputStream) null);
@@ -138,6 +417,9 @@ public class ZipBuilder {
         private final String name;
         private final InputStream content;
         private String comment;
+        private int method = ZipEntry.DEFLATED;
+        private long time = -1;
+        private byte[] extra;
 
         public Entry(String name, String content) {
             this(name, content.getBytes());
@@ -156,5 +438,17 @@ public class ZipBuilder {
             this.comment = comment;
         }
 
+        public void setMethod(int method) {
+            this.method = method;
+        }
+
+        public void setTime(long time) {
+            this.time = time;
+        }
+
+        public void setExtra(byte[] extra) {
+            this.extra = extra;
+        }
+
     }
 }
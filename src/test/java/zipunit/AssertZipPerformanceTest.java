@@ -15,15 +15,25 @@ package zipunit;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Random;
 
-import static org.junit.Assert.assertTrue;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class AssertZipPerformanceTest {
     private static final long EXPECTED_MIN_TIME = 250L;
+    private static final int LARGE_ENTRY_SIZE = 1024 * 1024;
     private static File zipFile;
+    private static File largeEntryZipFile;
+    private static byte[] largeEntryContents;
+
+    @Rule
+    public PerformanceBudget budget = new PerformanceBudget().withWarmUpIterations(5).withMeasuredIterations(10);
+    @Rule
+    public LookupModes lookupModes = new LookupModes();
 
     @BeforeClass
     public static void setUp() throws Exception {
@@ -32,53 +42,64 @@ public class AssertZipPerformanceTest {
             zipBuilder.withEntry(i + ".txt", "content");
         }
         zipFile = zipBuilder.build(File.createTempFile("test", ".zip"));
+
+        largeEntryContents = new byte[LARGE_ENTRY_SIZE];
+        new Random(0).nextBytes(largeEntryContents);
+        largeEntryZipFile = new ZipBuilder()
+                .withEntry("large.bin", largeEntryContents)
+                .build(File.createTempFile("test", ".zip"));
     }
 
     @AfterClass
     public static void deleteFile() {
         zipFile.delete();
+        largeEntryZipFile.delete();
+    }
+
+    @Test
+    public void assertTheContentOfAnEntryShouldOnlyAllocateTheEntryContents() {
+        // growing a ByteArrayOutputStream and copying it out allocates over 3x the entry size
+        budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
+                AssertZip.assertEntry("large.bin", largeEntryContents, largeEntryZipFile);
+            }
+        }).assertMedianAllocatedBytesAtMost(LARGE_ENTRY_SIZE + LARGE_ENTRY_SIZE / 4);
     }
 
     @Test
     public void assertTheContentOfAnEntryShouldBePerformant() {
-        assertElapsedTime(EXPECTED_MIN_TIME, new TimedTask() {
-            public void performTask() {
+        budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
                 AssertZip.assertEntry("1000.txt", "content", zipFile);
             }
-        });
+        }).assertMedianWallTimeAtMost(EXPECTED_MIN_TIME, MILLISECONDS);
     }
 
     @Test
     public void assertingTheNumberOfEntriesShouldBePerformant() {
-        assertElapsedTime(EXPECTED_MIN_TIME, new TimedTask() {
-            public void performTask() {
+        budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
                 AssertZip.assertNumberOfEntriesIs(10000, zipFile);
             }
-        });
+        }).assertMedianWallTimeAtMost(EXPECTED_MIN_TIME, MILLISECONDS);
     }
 
     @Test
     public void assertingEntryExistenceShouldBePerformant() {
-        assertElapsedTime(EXPECTED_MIN_TIME, new TimedTask() {
-            public void performTask() {
+        budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
                 AssertZip.assertEntryExists("1.txt", zipFile);
             }
-        });
+        }).assertMedianWallTimeAtMost(EXPECTED_MIN_TIME, MILLISECONDS);
     }
 
-    private void assertElapsedTime(long expectedMinTime, TimedTask task) {
-        long actualTime = time(task);
-        assertTrue("Expected the task to finish <= " + expectedMinTime + " millis, but was " + actualTime + " millis",
-                actualTime <= expectedMinTime);
-    }
-
-    private long time(TimedTask task) {
-        long start = System.currentTimeMillis();
-        task.performTask();
-        return System.currentTimeMillis() - start;
-    }
-
-    private interface TimedTask {
-        public void performTask();
+    @Test
+    public void assertingEntryExistenceWithLookupModesShouldBePerformant() {
+        AssertZip.useLookupModes(LookupMode.values());
+        budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
+                AssertZip.assertEntryExists("./9999.TXT", zipFile);
+            }
+        }).assertMedianWallTimeAtMost(EXPECTED_MIN_TIME, MILLISECONDS);
     }
 }
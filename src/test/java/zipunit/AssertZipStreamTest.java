@@ -0,0 +1,214 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AssertZipStreamTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private ZipBuilder zipBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        zipBuilder = new ZipBuilder(temporaryFolder.newFolder());
+        zipBuilder.withEntry("1.txt", "content");
+        zipBuilder.withEntry("2.bin", new byte[]{1, 2, 3});
+        zipBuilder.withDirEntry("dir/");
+    }
+
+    @Test
+    public void shouldVerifyAllExpectationsInASinglePass() throws IOException {
+        ForwardOnlyInputStream input = new ForwardOnlyInputStream(zipBuilder.build());
+        new AssertZipStream()
+                .expectEntry("1.txt", "content")
+                .expectEntry("2.bin", new byte[]{1, 2, 3})
+                .expectEntryExists("1.txt")
+                .expectEntryStartsWith("1.txt", "con".getBytes())
+                .expectEntryRange("1.txt", 3, "tent".getBytes())
+                .expectEntryActualSize("1.txt", 7)
+                .expectEntryCompressionMethod("1.txt", ZipEntry.DEFLATED)
+                .expectDirectoryEntryExist("dir")
+                .expectEntryDoesNotExist("doesNotExist")
+                .expectNumberOfEntriesIs(3)
+                .verify(input);
+        assertFalse("The stream should not be closed", input.closed);
+        input.close();
+    }
+
+    @Test
+    public void shouldFailWhenAnExpectedEntryIsNotInTheStream() {
+        assertFailure("The entry [doesNotExist] was not found", new AssertZipStream()
+                .expectEntryExists("doesNotExist"));
+    }
+
+    @Test
+    public void shouldFailWhenAnEntryExistsAndYouExpectedItToNotExist() {
+        assertFailure("The entry [1.txt] appears to exist and we did not expect the entry to exist", new AssertZipStream()
+                .expectEntryDoesNotExist("1.txt"));
+    }
+
+    @Test
+    public void shouldFailWhenTheContentsDoNotMatch() {
+        assertFailure("The entry [1.txt] expected content does not match", new AssertZipStream()
+                .expectEntry("1.txt", "doesNotMatch"));
+    }
+
+    @Test
+    public void shouldFailWhenTheEntryIsLongerThanTheExpectedContents() {
+        assertFailure("The entry [1.txt] expected content does not match", new AssertZipStream()
+                .expectEntry("1.txt", "con"));
+    }
+
+    @Test
+    public void shouldFailWhenTheEntryIsShorterThanTheExpectedContents() {
+        assertFailure("The entry [1.txt] expected content does not match", new AssertZipStream()
+                .expectEntry("1.txt", "contents"));
+    }
+
+    @Test
+    public void shouldFailWhenTheEntryDoesNotStartWithTheExpectedBytes() {
+        assertFailure("The entry [1.txt] does not start with the expected bytes", new AssertZipStream()
+                .expectEntryStartsWith("1.txt", "text".getBytes()));
+    }
+
+    @Test
+    public void shouldFailWhenTheRangeOfAnEntryDoesNotMatch() {
+        assertFailure("The entry [1.txt] bytes at offset [3] do not match", new AssertZipStream()
+                .expectEntryRange("1.txt", 3, "text".getBytes()));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void shouldNotAllowANegativeRangeOffset() {
+        new AssertZipStream().expectEntryRange("1.txt", -1, "content".getBytes());
+    }
+
+    @Test
+    public void shouldFailWhenTheSizeDoesNotMatch() {
+        assertFailure("The entry [1.txt] expected size does not match", new AssertZipStream()
+                .expectEntryActualSize("1.txt", 0));
+    }
+
+    @Test
+    public void shouldFailWhenTheCompressionMethodDoesNotMatch() {
+        assertFailure("The entry [1.txt] compression method does not match", new AssertZipStream()
+                .expectEntryCompressionMethod("1.txt", ZipEntry.STORED));
+    }
+
+    @Test
+    public void shouldFailWhenAnEntryIsNotADirectory() {
+        assertFailure("The entry [1.txt] is not a directory", new AssertZipStream()
+                .expectDirectoryEntryExist("1.txt"));
+    }
+
+    @Test
+    public void shouldFailWhenTheNumberOfEntriesDoesNotMatch() {
+        assertFailure("Number of entries do not match", new AssertZipStream()
+                .expectNumberOfEntriesIs(0));
+    }
+
+    @Test
+    public void shouldAllowCheckingMultipleExpectationsOnTheSameEntryContents() throws IOException {
+        zipBuilder.withEntry("large.txt", numbers(10000));
+        ForwardOnlyInputStream input = new ForwardOnlyInputStream(zipBuilder.build());
+        new AssertZipStream()
+                .expectEntry("large.txt", numbers(10000))
+                .expectEntryStartsWith("large.txt", "0,1,2".getBytes())
+                .expectEntryRange("large.txt", numbers(9000).length(), "9000,9001".getBytes())
+                .verify(input);
+        input.close();
+    }
+
+    private String numbers(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i).append(',');
+        }
+        return builder.toString();
+    }
+
+    private void assertFailure(String expectedMessage, AssertZipStream assertion) {
+        String actualMessage = null;
+        InputStream input = null;
+        try {
+            input = new ForwardOnlyInputStream(zipBuilder.build());
+            assertion.verify(input);
+            fail("we expected the assertion to fail");
+        } catch (AssertionError error) {
+            actualMessage = error.getMessage();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            close(input);
+        }
+        assertTrue("Failure message does not start as we expected.\n" +
+                        "\t    expectedPrefix=[" + expectedMessage + "...]\n" +
+                        "\tactualWholeMessage=[" + actualMessage + "]",
+                actualMessage.startsWith(expectedMessage)
+        );
+    }
+
+    private void close(InputStream input) {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+
+            }
+        }
+    }
+
+    private static class ForwardOnlyInputStream extends InputStream {
+        private final InputStream delegate;
+        private boolean closed = false;
+
+        private ForwardOnlyInputStream(File file) throws IOException {
+            delegate = new FileInputStream(file);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return delegate.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            delegate.close();
+        }
+    }
+}
@@ -20,13 +20,20 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class AssertZipTest {
+    private static final byte[] CLASS_FILE_MAGIC = new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
     @Rule
     public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @Rule
+    public LookupModes lookupModes = new LookupModes();
     private ZipBuilder zipBuilder;
 
     @Before
@@ -37,6 +44,113 @@ public class AssertZipTest {
         zipBuilder.withDirEntry("dir/");
     }
 
+    @Test
+    public void shouldAllowLookingUpEntriesIgnoringCase() {
+        zipBuilder.withEntry("Docs/ReadMe.TXT", "content");
+        zipBuilder.withDirEntry("Docs/Images");
+        File zip = zipBuilder.build();
+
+        AssertZip.useLookupModes(LookupMode.CASE_INSENSITIVE);
+
+        AssertZip.assertEntry("docs/readme.txt", "content", zip);
+        AssertZip.assertDirectoryEntryExist("DOCS/IMAGES", zip);
+        AssertZip.assertEntryDoesNotExist("docs/other.txt", zip);
+    }
+
+    @Test
+    public void shouldFindDirectoryEntriesWithoutATrailingSlashWhenUsingLookupModes() {
+        zipBuilder.withDirEntry("Docs/");
+        File zip = zipBuilder.build();
+
+        AssertZip.assertEntryExists("dir", zip);
+
+        AssertZip.useLookupModes(LookupMode.CASE_INSENSITIVE);
+
+        AssertZip.assertEntryExists("dir", zip);
+        AssertZip.assertEntryExists("docs", zip);
+    }
+
+    @Test
+    public void shouldAllowLookingUpEntriesWithNormalizedSeparators() {
+        zipBuilder.withEntry("lib\\native\\a.so", "content");
+        zipBuilder.withEntry("./b.txt", "content");
+        zipBuilder.withDirEntry("windows\\dir\\");
+        File zip = zipBuilder.build();
+
+        AssertZip.useLookupModes(LookupMode.NORMALIZED_SEPARATORS);
+
+        AssertZip.assertEntry("lib/native/a.so", "content", zip);
+        AssertZip.assertEntryExists("b.txt", zip);
+        AssertZip.assertEntryExists("lib//native/./a.so", zip);
+        AssertZip.assertDirectoryEntryExist("windows/dir", zip);
+    }
+
+    @Test
+    public void shouldAllowLookingUpEntriesUsingUnicodeNormalization() {
+        zipBuilder.withEntry("cafe\u0301.txt", "content");
+        File zip = zipBuilder.build();
+
+        AssertZip.useLookupModes(LookupMode.UNICODE_NFC);
+
+        AssertZip.assertEntry("caf\u00e9.txt", "content", zip);
+    }
+
+    @Test
+    public void shouldAllowCombiningLookupModesForMatchingEntries() {
+        zipBuilder.withEntry(entryWithMethod("LIB\\A.SO", "a", ZipEntry.STORED));
+        zipBuilder.withEntry(entryWithMethod("./lib/b.so", "b", ZipEntry.STORED));
+        File zip = zipBuilder.build();
+
+        AssertZip.useLookupModes(LookupMode.CASE_INSENSITIVE, LookupMode.NORMALIZED_SEPARATORS);
+
+        AssertZip.assertEntriesCompressionMethod("lib/*.so", ZipEntry.STORED, zip);
+    }
+
+    @Test
+    public void shouldSeeChangesToTheArchiveWhenLookingUpEntriesWithLookupModes() {
+        zipBuilder.withEntry("ReadMe.TXT", "content");
+        File zip = zipBuilder.build();
+
+        AssertZip.useLookupModes(LookupMode.CASE_INSENSITIVE);
+        AssertZip.assertEntryDoesNotExist("changes.txt", zip);
+
+        new ZipBuilder().withEntry("CHANGES.TXT", "changes").appendTo(zip);
+
+        AssertZip.assertEntry("changes.txt", "changes", zip);
+        AssertZip.assertEntry("readme.txt", "content", zip);
+    }
+
+    @Test
+    public void shouldSeeChangesToTheArchiveThatKeepItsLengthAndModificationTime() throws IOException {
+        File zip = new File(temporaryFolder.newFolder(), "same.zip");
+        new ZipBuilder().withEntry("ReadMe.TXT", "content").build(zip);
+        long lastModified = zip.lastModified();
+        long length = zip.length();
+
+        AssertZip.useLookupModes(LookupMode.CASE_INSENSITIVE);
+        AssertZip.assertEntryExists("readme.txt", zip);
+        AssertZip.assertEntryDoesNotExist("readmx.txt", zip);
+
+        new ZipBuilder().withEntry("ReadMx.TXT", "content").build(zip);
+        assertTrue(zip.setLastModified(lastModified));
+        assertEquals(length, zip.length());
+
+        AssertZip.assertEntryExists("readmx.txt", zip);
+        AssertZip.assertEntryDoesNotExist("readme.txt", zip);
+    }
+
+    @Test
+    public void shouldLookUpEntriesExactlyByDefault() {
+        zipBuilder.withEntry("ReadMe.TXT", "content");
+        AssertZip.useLookupModes(LookupMode.CASE_INSENSITIVE);
+        AssertZip.useExactLookup();
+        assertEntryDoesNotExistFailure("readme.txt", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryExists("readme.txt", zipBuilder.build());
+            }
+        });
+    }
+
     @Test
     public void shouldFailWhenTheEntryExistsAndYouExpectedItToNotExist() {
         assertFailure("The entry [1.txt] appears to exist and we did not expect the entry to exist", new ExpectedAssertionFailure() {
@@ -99,6 +213,364 @@ public class AssertZipTest {
         });
     }
 
+    @Test
+    public void shouldAllowAssertingTheCompressedSizeOfAnEntry() {
+        zipBuilder.withEntry(entryWithMethod("stored.txt", "content", ZipEntry.STORED));
+        AssertZip.assertEntryCompressedSize("stored.txt", 7, zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenTheCompressedSizeDoesNotMatch() {
+        assertFailure("The entry [1.txt] expected compressed size does not match", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryCompressedSize("1.txt", 0, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheEntryDoesNotExistWhenCheckingTheCompressedSize() {
+        assertEntryDoesNotExistFailure("doesNotExist", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryCompressedSize("doesNotExist", 0, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingTheCompressionMethodOfAnEntry() {
+        zipBuilder.withEntry(entryWithMethod("lib.so", "content", ZipEntry.STORED));
+        File zip = zipBuilder.build();
+        AssertZip.assertEntryCompressionMethod("lib.so", ZipEntry.STORED, zip);
+        AssertZip.assertEntryCompressionMethod("1.txt", ZipEntry.DEFLATED, zip);
+    }
+
+    @Test
+    public void shouldFailWhenTheCompressionMethodDoesNotMatch() {
+        assertFailure("The entry [1.txt] compression method does not match, expected [STORED] but was [DEFLATED]", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryCompressionMethod("1.txt", ZipEntry.STORED, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingTheCompressionMethodOfAllMatchingEntries() {
+        zipBuilder.withEntry(entryWithMethod("lib/a.so", "a", ZipEntry.STORED));
+        zipBuilder.withEntry(entryWithMethod("lib/b.so", "b", ZipEntry.STORED));
+        AssertZip.assertEntriesCompressionMethod("lib/*.so", ZipEntry.STORED, zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenAnyMatchingEntryDoesNotHaveTheCompressionMethod() {
+        zipBuilder.withEntry(entryWithMethod("lib/a.so", "a", ZipEntry.STORED));
+        zipBuilder.withEntry("lib/b.so", "b");
+        assertFailure("The entry [lib/b.so] compression method does not match", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntriesCompressionMethod("**.so", ZipEntry.STORED, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenNoEntriesMatchThePattern() {
+        assertFailure("No entries were found matching [*.so]", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntriesCompressionMethod("*.so", ZipEntry.STORED, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingTheCompressionRatioOfAnEntry() {
+        zipBuilder.withEntry("repeated.txt", repeated('a', 1000));
+        AssertZip.assertEntryCompressionRatioBelow("repeated.txt", 0.1, zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenTheCompressionRatioIsNotBelowTheMaximum() {
+        zipBuilder.withEntry(entryWithMethod("stored.txt", "content", ZipEntry.STORED));
+        assertFailure("The entry [stored.txt] compression ratio [1.0] is not below [0.5]", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryCompressionRatioBelow("stored.txt", 0.5, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenAnyMatchingEntryCompressionRatioIsNotBelowTheMaximum() {
+        zipBuilder.withEntry("text/a.txt", repeated('a', 1000));
+        zipBuilder.withEntry(entryWithMethod("text/b.txt", repeated('b', 1000), ZipEntry.STORED));
+        assertFailure("The entry [text/b.txt] compression ratio [1.0] is not below [0.5]", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntriesCompressionRatioBelow("text/*.txt", 0.5, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingTheLastModifiedTimeOfAnEntry() {
+        ZipBuilder.Entry entry = new ZipBuilder.Entry("dated.txt", "content");
+        entry.setTime(1400000000000L);
+        zipBuilder.withEntry(entry);
+        AssertZip.assertEntryLastModifiedTime("dated.txt", 1400000000000L, zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenTheLastModifiedTimeDoesNotMatch() {
+        ZipBuilder.Entry entry = new ZipBuilder.Entry("dated.txt", "content");
+        entry.setTime(1400000000000L);
+        zipBuilder.withEntry(entry);
+        assertFailure("The entry [dated.txt] last modified time does not match", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryLastModifiedTime("dated.txt", 1300000000000L, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingTheExtraFieldsOfAnEntry() {
+        byte[] extra = new byte[]{(byte) 0xFE, (byte) 0xCA, 0, 0};
+        zipBuilder.withEntry(entryWithExtra("extra.txt", extra));
+        File zip = zipBuilder.build();
+        AssertZip.assertEntryExtra("extra.txt", extra, zip);
+        AssertZip.assertEntryHasExtraField("extra.txt", 0xCAFE, zip);
+    }
+
+    @Test
+    public void shouldFailWhenTheExtraFieldsDoNotMatch() {
+        zipBuilder.withEntry(entryWithExtra("extra.txt", new byte[]{(byte) 0xFE, (byte) 0xCA, 0, 0}));
+        assertFailure("The entry [extra.txt] extra field data does not match", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryExtra("extra.txt", new byte[0], zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheExtraFieldHeaderIsMissing() {
+        assertFailure("The entry [1.txt] does not have an extra field with header id [0xcafe]", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryHasExtraField("1.txt", 0xCAFE, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingTheStartOfAnEntry() {
+        AssertZip.assertEntryStartsWith("1.txt", "cont".getBytes(), zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenTheEntryDoesNotStartWithTheExpectedBytes() {
+        assertFailure("The entry [1.txt] does not start with the expected bytes", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryStartsWith("1.txt", "text".getBytes(), zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheEntryIsShorterThanTheExpectedStart() {
+        assertFailure("The entry [2.bin] does not start with the expected bytes", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryStartsWith("2.bin", new byte[]{1, 2, 3, 4}, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheEntryDoesNotExistWhenCheckingTheStartOfAnEntry() {
+        assertEntryDoesNotExistFailure("doesNotExist", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryStartsWith("doesNotExist", new byte[0], zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingARangeOfACompressedEntry() {
+        zipBuilder.withEntry("numbers.txt", numbers(10000));
+        AssertZip.assertEntryRange("numbers.txt", numbers(9000).length(), "9000,9001".getBytes(), zipBuilder.build());
+    }
+
+    @Test
+    public void shouldAllowAssertingARangeOfAStoredEntry() {
+        zipBuilder.withEntry(entryWithMethod("numbers.txt", numbers(10000), ZipEntry.STORED));
+        AssertZip.assertEntryRange("numbers.txt", numbers(9000).length(), "9000,9001".getBytes(), zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenTheRangeOfAnEntryDoesNotMatch() {
+        assertFailure("The entry [1.txt] bytes at offset [3] do not match", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryRange("1.txt", 3, "text".getBytes(), zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheRangeOffsetIsNegative() {
+        zipBuilder.withEntry(entryWithMethod("stored.txt", "content", ZipEntry.STORED));
+        assertFailure("The offset [-4] can not be negative", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryRange("stored.txt", -4, ".txt".getBytes(), zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheRangeOffsetOfACompressedEntryIsNegative() {
+        assertFailure("The offset [-1] can not be negative", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryRange("1.txt", -1, "content".getBytes(), zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheRangeIsPastTheEndOfTheEntry() {
+        assertFailure("The entry [1.txt] bytes at offset [100] do not match", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntryRange("1.txt", 100, "text".getBytes(), zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingTheStartOfAllMatchingEntries() {
+        zipBuilder.withEntry("a/A.class", classFile(1));
+        zipBuilder.withEntry(entryWithMethod("a/B.class", classFile(2), ZipEntry.STORED));
+        zipBuilder.withEntry("a/b/C.txt", "text");
+        AssertZip.assertEntriesStartWith("a/**.class", CLASS_FILE_MAGIC, zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenAnyMatchingEntryDoesNotStartWithTheExpectedBytes() {
+        zipBuilder.withEntry("a/A.class", classFile(1));
+        zipBuilder.withEntry("a/B.class", "text");
+        assertFailure("The entry [a/B.class] does not start with the expected bytes", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertEntriesStartWith("a/*.class", CLASS_FILE_MAGIC, zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingAnArchiveIsIntact() {
+        zipBuilder.withEntry(entryWithMethod("stored.txt", "content", ZipEntry.STORED));
+        for (int i = 0; i < 100; i++) {
+            zipBuilder.withEntry("numbers/" + i + ".txt", numbers(i * 10));
+        }
+        AssertZip.assertArchiveIntact(zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenTheDataOfAnEntryDoesNotMatchItsCrc() throws IOException {
+        zipBuilder.withEntry(entryWithMethod("stored.txt", "content", ZipEntry.STORED));
+        final File zip = zipBuilder.build();
+        final long localHeaderOffset = indexOf(zip, "stored.txt") - 30;
+        overwrite(zip, indexOf(zip, "content"), "CONTENT".getBytes());
+        assertFailure("The entry [stored.txt] at offset [" + localHeaderOffset + "] CRC", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertArchiveIntact(zip);
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheLocalHeaderDoesNotMatchTheCentralDirectory() throws IOException {
+        final File zip = zipBuilder.build();
+        overwrite(zip, 8, new byte[]{0, 0});
+        assertFailure("The entry [1.txt] at offset [0] local header compression method [0] does not match the central directory [8]", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertArchiveIntact(zip);
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheLocalHeaderDataDescriptorFlagDoesNotMatchTheCentralDirectory() throws IOException {
+        final File zip = zipBuilder.build();
+        overwrite(zip, 6, new byte[]{0, 0x08});
+        assertFailure("The entry [1.txt] at offset [0] local header data descriptor flag does not match the central directory", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertArchiveIntact(zip);
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheCompressedDataIsCorrupt() throws IOException {
+        zipBuilder.withEntry("numbers.txt", numbers(1000));
+        final File zip = zipBuilder.build();
+        long dataOffset = indexOf(zip, "numbers.txt") + "numbers.txt".length();
+        overwrite(zip, dataOffset + 10, new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        assertFailure("The entry [numbers.txt] at offset [" + (dataOffset - 30 - "numbers.txt".length()) + "]", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertArchiveIntact(zip);
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailWhenTheArchiveIsTruncated() throws IOException {
+        final File zip = zipBuilder.build();
+        RandomAccessFile file = new RandomAccessFile(zip, "rw");
+        try {
+            file.setLength(file.length() / 2);
+        } finally {
+            file.close();
+        }
+        assertFailure("The central directory of [" + zip.getName() + "] could not be read", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertArchiveIntact(zip);
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailIfAZipFileIsNotFoundWhenAssertingTheArchiveIsIntact() {
+        assertFileNotFoundFailure(new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertArchiveIntact(nonExistentZipFile());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowAssertingThereIsNoDuplicateContent() {
+        AssertZip.assertNoDuplicateContent(zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenEntriesHaveDuplicateContent() {
+        zipBuilder.withEntry("copy/1.txt", "content");
+        assertFailure("Entries with duplicate content were found: 1 duplicate content group(s) wasting", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertNoDuplicateContent(zipBuilder.build());
+            }
+        });
+    }
+
+    @Test
+    public void shouldAllowDuplicateContentWithinTheWastedBytesBudget() {
+        zipBuilder.withEntry(entryWithMethod("copy/1.txt", "stored", ZipEntry.STORED));
+        zipBuilder.withEntry(entryWithMethod("copy/2.txt", "stored", ZipEntry.STORED));
+        AssertZip.assertDuplicateContentWastesAtMost(6, zipBuilder.build());
+    }
+
+    @Test
+    public void shouldFailWhenDuplicateContentExceedsTheWastedBytesBudget() {
+        zipBuilder.withEntry(entryWithMethod("copy/1.txt", "stored", ZipEntry.STORED));
+        zipBuilder.withEntry(entryWithMethod("copy/2.txt", "stored", ZipEntry.STORED));
+        assertFailure("Duplicate content wastes more than 5 bytes", new ExpectedAssertionFailure() {
+            protected void performAssertion() {
+                AssertZip.assertDuplicateContentWastesAtMost(5, zipBuilder.build());
+            }
+        });
+    }
+
     @Test
     public void shouldFailWhenAnEntryDoesNotExistWhenAssertingADirectory() {
         assertEntryDoesNotExistFailure("doesNotExist", new ExpectedAssertionFailure() {
@@ -195,6 +667,34 @@ public class AssertZipTest {
         });
     }
 
+    @Test
+    public void shouldReadTheCurrentContentsWhenAZipIsRebuiltAtTheSamePath() throws IOException {
+        File zip = new File(temporaryFolder.newFolder(), "same.zip");
+        new ZipBuilder().withEntry("0.txt", "").withEntry("1.txt", "content").build(zip);
+        AssertZip.assertEntry("1.txt", "content", zip);
+
+        new ZipBuilder().withEntry("1.txt", "changed content").build(zip);
+        AssertZip.assertEntry("1.txt", "changed content", zip);
+    }
+
+    @Test
+    public void shouldReadTheSameEntryAsZipFileWhenANameIsDuplicated() throws IOException {
+        File zip = new ZipBuilder(temporaryFolder.newFolder()).withEntry("1.txt", "old").withEntry("2.txt", "new content").build();
+        overwrite(zip, indexOf(zip, "2.txt"), "1".getBytes());
+        overwrite(zip, indexOf(zip, "2.txt"), "1".getBytes());
+
+        ZipFile zipFile = new ZipFile(zip);
+        String expectedContents;
+        try {
+            expectedContents = new String(EntryContents.read(zipFile.getInputStream(zipFile.getEntry("1.txt")), -1), "UTF-8");
+        } finally {
+            zipFile.close();
+        }
+
+        AssertZip.assertEntry("1.txt", expectedContents, zip);
+        AssertZip.assertEntryStartsWith("1.txt", expectedContents.substring(0, 3).getBytes("UTF-8"), zip);
+    }
+
     @Test
     public void shouldSupportAssertingBinaryContentOfAnEntry() {
         AssertZip.assertEntry("2.bin", new byte[]{1, 2, 3}, zipBuilder.build());
@@ -221,12 +721,71 @@ public class AssertZipTest {
         return new File("doesNotExist.zip");
     }
 
+    private long indexOf(File file, String text) throws IOException {
+        byte[] contents = new byte[(int) file.length()];
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            input.readFully(contents);
+        } finally {
+            input.close();
+        }
+        return new String(contents, "ISO-8859-1").indexOf(text);
+    }
+
+    private void overwrite(File file, long offset, byte[] bytes) throws IOException {
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.seek(offset);
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+
     private ZipBuilder.Entry entryWithComment(String entryPath, String comment) {
         ZipBuilder.Entry entry = new ZipBuilder.Entry(entryPath, "");
         entry.setComment(comment);
         return entry;
     }
 
+    private ZipBuilder.Entry entryWithMethod(String entryPath, String content, int method) {
+        ZipBuilder.Entry entry = new ZipBuilder.Entry(entryPath, content);
+        entry.setMethod(method);
+        return entry;
+    }
+
+    private ZipBuilder.Entry entryWithMethod(String entryPath, byte[] content, int method) {
+        ZipBuilder.Entry entry = new ZipBuilder.Entry(entryPath, content);
+        entry.setMethod(method);
+        return entry;
+    }
+
+    private ZipBuilder.Entry entryWithExtra(String entryPath, byte[] extra) {
+        ZipBuilder.Entry entry = new ZipBuilder.Entry(entryPath, "");
+        entry.setExtra(extra);
+        return entry;
+    }
+
+    private byte[] classFile(int body) {
+        return new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, (byte) body};
+    }
+
+    private String numbers(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i).append(',');
+        }
+        return builder.toString();
+    }
+
+    private String repeated(char c, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
     private void assertEntryDoesNotExistFailure(final String expectedEntry, ExpectedAssertionFailure expectedAssertionFailure) {
         assertFailure("The entry [" + expectedEntry + "] was not found", expectedAssertionFailure);
     }
@@ -0,0 +1,95 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicateContentReportTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private ZipBuilder zipBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        zipBuilder = new ZipBuilder(temporaryFolder.newFolder());
+        zipBuilder.withEntry("1.txt", "content");
+        zipBuilder.withEntry("2.bin", new byte[]{1, 2, 3});
+        zipBuilder.withDirEntry("dir/");
+    }
+
+    @Test
+    public void shouldNotReportAnythingWhenAllContentIsUnique() {
+        DuplicateContentReport report = DuplicateContentReport.of(zipBuilder.build());
+        assertTrue(report.isEmpty());
+        assertEquals(0, report.getWastedBytes());
+    }
+
+    @Test
+    public void shouldGroupEntriesWithTheSameContent() {
+        zipBuilder.withEntry("a/1.txt", "content");
+        zipBuilder.withEntry("b/1.txt", "content");
+        zipBuilder.withEntry("a/2.bin", new byte[]{1, 2, 3});
+
+        DuplicateContentReport report = DuplicateContentReport.of(zipBuilder.build());
+
+        assertEquals(2, report.getGroups().size());
+        assertEquals(Arrays.asList("1.txt", "a/1.txt", "b/1.txt"), report.getGroups().get(0).getEntryNames());
+        assertEquals(7, report.getGroups().get(0).getSize());
+        assertEquals(Arrays.asList("2.bin", "a/2.bin"), report.getGroups().get(1).getEntryNames());
+    }
+
+    @Test
+    public void shouldReportTheBytesWastedByEachGroup() {
+        zipBuilder.withEntry(storedEntry("a/stored.txt", "stored"));
+        zipBuilder.withEntry(storedEntry("b/stored.txt", "stored"));
+        zipBuilder.withEntry(storedEntry("c/stored.txt", "stored"));
+        zipBuilder.withEntry(storedEntry("a/other.txt", "other"));
+        zipBuilder.withEntry(storedEntry("b/other.txt", "other"));
+
+        DuplicateContentReport report = DuplicateContentReport.of(zipBuilder.build());
+
+        assertEquals(2, report.getGroups().size());
+        assertEquals(12, report.getGroups().get(0).getWastedBytes());
+        assertEquals(5, report.getGroups().get(1).getWastedBytes());
+        assertEquals(17, report.getWastedBytes());
+    }
+
+    @Test
+    public void shouldNotGroupEntriesThatOnlyShareTheirSize() {
+        zipBuilder.withEntry("other.txt", "CONTENT");
+        assertTrue(DuplicateContentReport.of(zipBuilder.build()).isEmpty());
+    }
+
+    @Test
+    public void shouldNotReportEmptyEntries() {
+        zipBuilder.withEntry("empty1.txt", "");
+        zipBuilder.withEntry("empty2.txt", "");
+        assertTrue(DuplicateContentReport.of(zipBuilder.build()).isEmpty());
+    }
+
+    private ZipBuilder.Entry storedEntry(String entryPath, String content) {
+        ZipBuilder.Entry entry = new ZipBuilder.Entry(entryPath, content);
+        entry.setMethod(ZipEntry.STORED);
+        return entry;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LookupModesTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public LookupModes lookupModes = new LookupModes(LookupMode.CASE_INSENSITIVE);
+
+    @Test
+    public void shouldUseTheLookupModesDuringTheTest() throws IOException {
+        File zip = new ZipBuilder(temporaryFolder.newFolder()).withEntry("ReadMe.TXT", "content").build();
+        AssertZip.assertEntry("readme.txt", "content", zip);
+    }
+
+    @Test
+    public void shouldRestoreExactLookupAfterAFailingTest() throws Throwable {
+        final File zip = new ZipBuilder(temporaryFolder.newFolder()).withEntry("ReadMe.TXT", "content").build();
+        Statement failingTest = new Statement() {
+            public void evaluate() {
+                AssertZip.assertEntryExists("readme.txt", zip);
+                fail("Failing test");
+            }
+        };
+        try {
+            new LookupModes(LookupMode.CASE_INSENSITIVE).apply(failingTest, Description.EMPTY).evaluate();
+            fail();
+        } catch (AssertionError e) {
+            assertEquals("Failing test", e.getMessage());
+        }
+
+        AssertZip.assertEntryDoesNotExist("readme.txt", zip);
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ *
+ * Copyright to the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package zipunit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PerformanceBudgetTest {
+    @Rule
+    public PerformanceBudget budget = new PerformanceBudget().withWarmUpIterations(3).withMeasuredIterations(7);
+
+    @Test
+    public void shouldRunTheWarmUpAndMeasuredIterations() {
+        final AtomicInteger iterations = new AtomicInteger(0);
+        budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
+                iterations.incrementAndGet();
+            }
+        });
+        assertEquals(10, iterations.get());
+    }
+
+    @Test
+    public void shouldPassWhenTheTaskIsWithinItsBudgets() {
+        budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
+            }
+        }).assertMedianWallTimeAtMost(1, TimeUnit.SECONDS)
+                .assertMedianCpuTimeAtMost(1, TimeUnit.SECONDS)
+                .assertMedianAllocatedBytesAtMost(1024 * 1024);
+    }
+
+    @Test
+    public void shouldMeasureTheBytesAllocatedByTheTask() {
+        PerformanceBudget.Measurement measurement = budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
+                consume(new byte[1024 * 1024]);
+            }
+        });
+        assertTrue("Expected at least 1MB to be allocated, but was " + measurement.getMedianAllocatedBytes(),
+                measurement.getMedianAllocatedBytes() >= 1024 * 1024);
+    }
+
+    @Test
+    public void shouldFailWithASummaryWhenTheWallTimeBudgetIsExceeded() {
+        PerformanceBudget.Measurement measurement = budget.measure(new PerformanceBudget.Task() {
+            public void perform() throws Exception {
+                Thread.sleep(2);
+            }
+        });
+        String message = failureOf(measurement, new Budget() {
+            public void check(PerformanceBudget.Measurement measurement) {
+                measurement.assertMedianWallTimeAtMost(1, TimeUnit.MICROSECONDS);
+            }
+        });
+        assertTrue(message, message.startsWith("[shouldFailWithASummaryWhenTheWallTimeBudgetIsExceeded] Median wall time of "));
+        assertTrue(message, message.contains("exceeded the budget of 0.001 ms"));
+        assertTrue(message, message.contains("wall time: n=7, min="));
+        assertTrue(message, message.contains(", median="));
+        assertTrue(message, message.contains(", p90="));
+        assertTrue(message, message.contains(", stddev="));
+    }
+
+    @Test
+    public void shouldFailWhenTheAllocationBudgetIsExceeded() {
+        PerformanceBudget.Measurement measurement = budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
+                consume(new byte[1024 * 1024]);
+            }
+        });
+        String message = failureOf(measurement, new Budget() {
+            public void check(PerformanceBudget.Measurement measurement) {
+                measurement.assertMedianAllocatedBytesAtMost(1024);
+            }
+        });
+        assertTrue(message, message.contains("Median allocated bytes of "));
+        assertTrue(message, message.contains("exceeded the budget of 1024 bytes"));
+    }
+
+    @Test
+    public void shouldFailWhenTheCpuTimeBudgetIsExceeded() {
+        PerformanceBudget.Measurement measurement = budget.measure(new PerformanceBudget.Task() {
+            public void perform() {
+                consume(new byte[1024 * 1024]);
+            }
+        });
+        String message = failureOf(measurement, new Budget() {
+            public void check(PerformanceBudget.Measurement measurement) {
+                measurement.assertMedianCpuTimeAtMost(0, TimeUnit.NANOSECONDS);
+            }
+        });
+        assertTrue(message, message.contains("Median thread CPU time of "));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void shouldRequireAtLeastOneMeasuredIteration() {
+        new PerformanceBudget().withMeasuredIterations(0);
+    }
+
+    private String failureOf(PerformanceBudget.Measurement measurement, Budget budget) {
+        try {
+            budget.check(measurement);
+            fail("we expected the budget to be exceeded");
+            return null;
+        } catch (AssertionError error) {
+            return error.getMessage();
+        }
+    }
+
+    private static void consume(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private interface Budget {
+        void check(PerformanceBudget.Measurement measurement);
+    }
+}
@@ -19,7 +19,11 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -85,6 +89,121 @@ public class ZipBuilderTest {
         AssertZip.assertEntry("test.txt", "content", zipBuilder.build());
     }
     
+    @Test
+    public void shouldAllowStoringAnEntryWithoutCompression() {
+        ZipBuilder.Entry entry = new ZipBuilder.Entry("1.txt", "content");
+        entry.setMethod(ZipEntry.STORED);
+        zipBuilder.withEntry(entry);
+        File zip = zipBuilder.build();
+        AssertZip.assertEntryCompressionMethod("1.txt", ZipEntry.STORED, zip);
+        AssertZip.assertEntry("1.txt", "content", zip);
+    }
+
+    @Test
+    public void shouldAllowAppendingEntriesToAnExistingZipFile() {
+        zipBuilder.withEntry("1.txt", "content");
+        File zip = zipBuilder.build();
+
+        ZipBuilder.Entry stored = new ZipBuilder.Entry("3.txt", "stored");
+        stored.setMethod(ZipEntry.STORED);
+        new ZipBuilder()
+                .withEntry("2.txt", "appended")
+                .withEntry(stored)
+                .withDirEntry("dir")
+                .appendTo(zip);
+
+        AssertZip.assertNumberOfEntriesIs(4, zip);
+        AssertZip.assertEntry("1.txt", "content", zip);
+        AssertZip.assertEntry("2.txt", "appended", zip);
+        AssertZip.assertEntry("3.txt", "stored", zip);
+        AssertZip.assertEntryCompressionMethod("3.txt", ZipEntry.STORED, zip);
+        AssertZip.assertDirectoryEntryExist("dir", zip);
+        AssertZip.assertArchiveIntact(zip);
+    }
+
+    @Test
+    public void shouldAllowAppendingToAZipFileMoreThanOnce() {
+        zipBuilder.withEntry("0.txt", "0");
+        File zip = zipBuilder.build();
+        for (int i = 1; i < 5; i++) {
+            new ZipBuilder().withEntry(i + ".txt", String.valueOf(i)).appendTo(zip);
+            AssertZip.assertNumberOfEntriesIs(i + 1, zip);
+            AssertZip.assertEntry(i + ".txt", String.valueOf(i), zip);
+        }
+        AssertZip.assertEntry("0.txt", "0", zip);
+        AssertZip.assertArchiveIntact(zip);
+    }
+
+    @Test
+    public void shouldKeepTheCommentsAndTimesOfAppendedEntries() {
+        File zip = zipBuilder.withEntry("1.txt", "content").build();
+
+        ZipBuilder.Entry entry = new ZipBuilder.Entry("2.txt", "content");
+        entry.setComment("comment");
+        entry.setTime(1400000000000L);
+        new ZipBuilder().withEntry(entry).appendTo(zip);
+
+        AssertZip.assertEntryComment("2.txt", "comment", zip);
+        AssertZip.assertEntryLastModifiedTime("2.txt", 1400000000000L, zip);
+    }
+
+    @Test
+    public void shouldNotAppendAnEntryWithTheNameOfAnExistingEntry() {
+        File zip = zipBuilder.withEntry("1.txt", "content").build();
+        long originalLength = zip.length();
+        try {
+            new ZipBuilder().withEntry("2.txt", "content").withEntry("1.txt", "other content").appendTo(zip);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("duplicate entry: 1.txt", e.getCause().getMessage());
+        }
+
+        assertEquals(originalLength, zip.length());
+        AssertZip.assertNumberOfEntriesIs(1, zip);
+        AssertZip.assertEntry("1.txt", "content", zip);
+    }
+
+    @Test
+    public void shouldNotAppendTheSameEntryNameTwice() {
+        File zip = zipBuilder.withEntry("1.txt", "content").build();
+        try {
+            new ZipBuilder().withEntry("2.txt", "content").withEntry("2.txt", "other content").appendTo(zip);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("duplicate entry: 2.txt", e.getCause().getMessage());
+        }
+
+        AssertZip.assertNumberOfEntriesIs(1, zip);
+    }
+
+    @Test
+    public void shouldLeaveTheExistingZipFileIntactWhenAppendingFails() {
+        File zip = zipBuilder.withEntry("1.txt", "content").build();
+        long originalLength = zip.length();
+
+        MockInputStream input = new MockInputStream("content");
+        input.throwExceptionOnRead();
+        try {
+            new ZipBuilder()
+                    .withEntry("2.txt", "appended")
+                    .withEntry(new ZipBuilder.Entry("3.txt", input))
+                    .appendTo(zip);
+            fail();
+        } catch (RuntimeException e) {
+
+        }
+
+        assertEquals(originalLength, zip.length());
+        AssertZip.assertNumberOfEntriesIs(1, zip);
+        AssertZip.assertEntry("1.txt", "content", zip);
+        AssertZip.assertArchiveIntact(zip);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void shouldBlowUpIfYouTryToAppendToAFileThatIsNotAZipFile() throws IOException {
+        new ZipBuilder().withEntry("1.txt", "content").appendTo(temporaryFolder.newFile("notAZip.zip"));
+    }
+
     @Test(expected = AssertionError.class)
     public void shouldBlowUpIfYouTryToBuildAZipWithoutAFolder() {
         new ZipBuilder().build("test");